@@ -0,0 +1,111 @@
+package com.pm.analyticsservice.aggregation;
+
+import com.pm.analyticsservice.dto.PatientAnalyticsResponseDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import patient.events.PatientEvent;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps running aggregates over the patient event stream so queries never have to scan patient data.
+// Every event is an O(1) update: one per-minute bucket, one per-day counter and one sketch register
+@Component
+public class PatientEventAggregator {
+
+    private final MinuteBucket[] minuteBuckets;
+    private final Map<LocalDate, LongAdder> registrationsPerDay = new ConcurrentHashMap<>();
+    private final HyperLogLog distinctPatients;
+    private final int retentionDays;
+
+    public PatientEventAggregator(@Value("${analytics.aggregates.window-minutes:1440}") int windowMinutes,
+                                  @Value("${analytics.aggregates.retention-days:30}") int retentionDays,
+                                  @Value("${analytics.aggregates.hll-precision:14}") int hllPrecision) {
+        this.minuteBuckets = new MinuteBucket[windowMinutes];
+        for (int i = 0; i < windowMinutes; i++) {
+            minuteBuckets[i] = new MinuteBucket();
+        }
+        this.retentionDays = retentionDays;
+        this.distinctPatients = new HyperLogLog(hllPrecision);
+    }
+
+    public void apply(PatientEvent event, long timestampMillis) {
+        long epochMinute = timestampMillis / 60_000;
+        MinuteBucket bucket = minuteBuckets[(int) (epochMinute % minuteBuckets.length)];
+
+        switch (PatientProjection.typeOf(event)) {
+            case PATIENT_CREATED -> {
+                bucket.increment(epochMinute, 0);
+                LocalDate day = Instant.ofEpochMilli(timestampMillis).atZone(ZoneOffset.UTC).toLocalDate();
+                registrationsPerDay.computeIfAbsent(day, d -> new LongAdder()).increment();
+            }
+            case PATIENT_UPDATED -> bucket.increment(epochMinute, 1);
+            case PATIENT_DELETED -> bucket.increment(epochMinute, 2);
+            default -> {
+                return;
+            }
+        }
+
+        distinctPatients.add(event.getPatientId());
+    }
+
+    // Sums the per-minute buckets of the last windowMinutes minutes (capped at the configured window)
+    public PatientAnalyticsResponseDTO query(int windowMinutes) {
+        int minutes = Math.max(1, Math.min(windowMinutes, minuteBuckets.length));
+        long currentMinute = System.currentTimeMillis() / 60_000;
+
+        long[] totals = new long[3];
+        for (long minute = currentMinute - minutes + 1; minute <= currentMinute; minute++) {
+            minuteBuckets[(int) (minute % minuteBuckets.length)].addTo(minute, totals);
+        }
+
+        LocalDate oldestDay = LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays - 1L);
+        registrationsPerDay.keySet().removeIf(day -> day.isBefore(oldestDay));
+        Map<String, Long> registrations = new TreeMap<>();
+        registrationsPerDay.forEach((day, count) -> registrations.put(day.toString(), count.sum()));
+
+        PatientAnalyticsResponseDTO response = new PatientAnalyticsResponseDTO();
+        response.setWindowMinutes(minutes);
+        response.setCreated(totals[0]);
+        response.setUpdated(totals[1]);
+        response.setDeleted(totals[2]);
+        response.setDistinctPatients(distinctPatients.estimate());
+        response.setRegistrationsPerDay(registrations);
+        return response;
+    }
+
+    // Counts for one wall-clock minute. Buckets are reused round-robin, so a bucket still holding an
+    // older minute is reset before it is written and ignored when read
+    private static final class MinuteBucket {
+
+        private long epochMinute = -1;
+        private final long[] counts = new long[3];
+
+        synchronized void increment(long minute, int type) {
+            if (minute < epochMinute) {
+                // late event older than the window this slot now covers
+                return;
+            }
+            if (minute > epochMinute) {
+                epochMinute = minute;
+                counts[0] = 0;
+                counts[1] = 0;
+                counts[2] = 0;
+            }
+            counts[type]++;
+        }
+
+        synchronized void addTo(long minute, long[] totals) {
+            if (minute == epochMinute) {
+                totals[0] += counts[0];
+                totals[1] += counts[1];
+                totals[2] += counts[2];
+            }
+        }
+    }
+}
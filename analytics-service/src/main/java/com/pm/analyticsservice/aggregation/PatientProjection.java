@@ -0,0 +1,184 @@
+package com.pm.analyticsservice.aggregation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.pm.analyticsservice.dto.PatientSnapshotDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+// State of recently changed patients, rebuilt from the event stream alone: created events carry the full
+// record, updates are merged field by field from their field mask and deletes leave a tombstone. Each
+// patient keeps the version of the last event applied, so redelivered and out-of-date events are
+// recognised and dropped instead of being applied (and counted) twice.
+// The projection is a bounded cache, not a copy of the patient table: entries expire analytics.projection.ttl
+// after their last change (tombstones after analytics.projection.tombstone-ttl) and the least recently used
+// are evicted beyond analytics.projection.max-size. A duplicate arriving after its entry is gone is applied again.
+// projectedPatients counts the live patients held here, so a patient leaves the count when its entry does
+@Component
+public class PatientProjection {
+
+    private final Cache<String, PatientState> patients;
+    private final LongAdder projectedPatients = new LongAdder();
+
+    public PatientProjection(@Value("${analytics.projection.max-size:100000}") long maxSize,
+                             @Value("${analytics.projection.ttl:24h}") Duration ttl,
+                             @Value("${analytics.projection.tombstone-ttl:1h}") Duration tombstoneTtl,
+                             MeterRegistry meterRegistry) {
+        this(maxSize, ttl, tombstoneTtl, meterRegistry, Ticker.systemTicker());
+    }
+
+    PatientProjection(long maxSize, Duration ttl, Duration tombstoneTtl, MeterRegistry meterRegistry,
+                      Ticker ticker) {
+        this.patients = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .ticker(ticker)
+                .expireAfter(new Expiry<String, PatientState>() {
+                    @Override
+                    public long expireAfterCreate(String patientId, PatientState state, long currentTime) {
+                        return (state.deleted() ? tombstoneTtl : ttl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String patientId, PatientState state, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(patientId, state, currentTime);
+                    }
+
+                    // lookups do not keep an entry alive
+                    @Override
+                    public long expireAfterRead(String patientId, PatientState state, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                // runs inside the cache's maintenance for expired and size-evicted entries, not for replacements
+                .evictionListener((String patientId, PatientState state, RemovalCause cause) -> {
+                    if (state != null && state.counted()) {
+                        projectedPatients.decrement();
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, patients, "patientProjection");
+    }
+
+    // Events written before the type field existed only name their type as a string; event_type is
+    // deprecated in the schema and read here only as that fallback
+    @SuppressWarnings("deprecation")
+    public static PatientEventType typeOf(PatientEvent event) {
+        if (event.getType() != PatientEventType.PATIENT_EVENT_TYPE_UNSPECIFIED) {
+            return event.getType();
+        }
+        return switch (event.getEventType()) {
+            case "PATIENT_CREATED" -> PatientEventType.PATIENT_CREATED;
+            case "PATIENT_UPDATED" -> PatientEventType.PATIENT_UPDATED;
+            case "PATIENT_DELETED" -> PatientEventType.PATIENT_DELETED;
+            default -> PatientEventType.PATIENT_EVENT_TYPE_UNSPECIFIED;
+        };
+    }
+
+    // true when the event changed the projection, false for duplicates, stale and unknown events
+    public boolean apply(PatientEvent event) {
+        PatientEventType type = typeOf(event);
+        if (type != PatientEventType.PATIENT_CREATED
+                && type != PatientEventType.PATIENT_UPDATED
+                && type != PatientEventType.PATIENT_DELETED) {
+            return false;
+        }
+
+        boolean[] applied = new boolean[1];
+        patients.asMap().compute(event.getPatientId(), (id, current) -> {
+            if (current != null && event.getVersion() <= current.version()) {
+                return current;
+            }
+
+            PatientState next = switch (type) {
+                case PATIENT_CREATED -> PatientState.created(event);
+                // an update may arrive for a patient whose create was never seen, start from an empty record
+                case PATIENT_UPDATED -> (current != null ? current : PatientState.EMPTY).merge(event);
+                default -> PatientState.deleted(event.getVersion());
+            };
+            // only patients whose create was seen are counted, so only their deletes are subtracted
+            if (next.counted() && (current == null || !current.counted())) {
+                projectedPatients.increment();
+            } else if (!next.counted() && current != null && current.counted()) {
+                projectedPatients.decrement();
+            }
+            applied[0] = true;
+            return next;
+        });
+        return applied[0];
+    }
+
+    public Optional<PatientSnapshotDTO> find(String patientId) {
+        PatientState state = patients.getIfPresent(patientId);
+        if (state == null || state.deleted()) {
+            return Optional.empty();
+        }
+
+        PatientSnapshotDTO snapshot = new PatientSnapshotDTO();
+        snapshot.setId(patientId);
+        snapshot.setVersion(state.version());
+        snapshot.setName(state.name());
+        snapshot.setEmail(state.email());
+        snapshot.setAddress(state.address());
+        snapshot.setDateOfBirth(state.dateOfBirth());
+        snapshot.setRegisteredDate(state.registeredDate());
+        return Optional.of(snapshot);
+    }
+
+    public long projectedPatients() {
+        // run pending expirations first, so entries past their ttl are no longer counted
+        patients.cleanUp();
+        return projectedPatients.sum();
+    }
+
+    // counted: the patient's create event was applied and it has not been deleted since.
+    // Tombstones stop an update delivered after the delete from bringing the patient back
+    private record PatientState(long version, boolean deleted, boolean counted, String name, String email,
+                                String address, String dateOfBirth, String registeredDate) {
+
+        static final PatientState EMPTY = new PatientState(-1, false, false, null, null, null, null, null);
+
+        static PatientState created(PatientEvent event) {
+            return new PatientState(event.getVersion(), false, true, event.getName(), event.getEmail(),
+                    event.getAddress(), event.getDateOfBirth(), event.getRegisteredDate());
+        }
+
+        static PatientState deleted(long version) {
+            return new PatientState(version, true, false, null, null, null, null, null);
+        }
+
+        // paths this consumer does not know yet come from newer producers and are skipped
+        PatientState merge(PatientEvent event) {
+            String name = this.name;
+            String email = this.email;
+            String address = this.address;
+            String dateOfBirth = this.dateOfBirth;
+            for (String path : event.getChangedFields().getPathsList()) {
+                switch (path) {
+                    case "name" -> name = event.getName();
+                    case "email" -> email = event.getEmail();
+                    case "address" -> address = event.getAddress();
+                    case "date_of_birth" -> dateOfBirth = event.getDateOfBirth();
+                    default -> {
+                    }
+                }
+            }
+            return new PatientState(event.getVersion(), false, counted, name, email, address, dateOfBirth,
+                    registeredDate);
+        }
+    }
+}
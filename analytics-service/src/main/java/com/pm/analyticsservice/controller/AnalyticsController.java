@@ -0,0 +1,43 @@
+package com.pm.analyticsservice.controller;
+
+import com.pm.analyticsservice.aggregation.PatientEventAggregator;
+import com.pm.analyticsservice.aggregation.PatientProjection;
+import com.pm.analyticsservice.dto.PatientAnalyticsResponseDTO;
+import com.pm.analyticsservice.dto.PatientSnapshotDTO;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/analytics")
+public class AnalyticsController {
+
+    private final PatientEventAggregator patientEventAggregator;
+    private final PatientProjection patientProjection;
+
+    public AnalyticsController(PatientEventAggregator patientEventAggregator, PatientProjection patientProjection) {
+        this.patientEventAggregator = patientEventAggregator;
+        this.patientProjection = patientProjection;
+    }
+
+    // Answered entirely from in-memory aggregates, never from the patient database
+    @GetMapping("/patients")
+    public ResponseEntity<PatientAnalyticsResponseDTO> getPatientAnalytics(
+            @RequestParam(defaultValue = "60") int windowMinutes) {
+        PatientAnalyticsResponseDTO response = patientEventAggregator.query(windowMinutes);
+        response.setProjectedPatients(patientProjection.projectedPatients());
+        return ResponseEntity.ok().body(response);
+    }
+
+    // The patient as the event stream describes it, without calling patient-service. Only patients changed
+    // within analytics.projection.ttl are known, others answer 404
+    @GetMapping("/patients/{id}")
+    public ResponseEntity<PatientSnapshotDTO> getPatient(@PathVariable String id) {
+        return patientProjection.find(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,77 @@
+package com.pm.analyticsservice.dto;
+
+import java.util.Map;
+
+public class PatientAnalyticsResponseDTO {
+
+    private int windowMinutes;
+    private long created;
+    private long updated;
+    private long deleted;
+
+    // patients held in the analytics projection: their create was seen since startup, they were not deleted
+    // and their entry has not expired or been evicted. Not the number of patients in patient-service
+    private long projectedPatients;
+
+    // HyperLogLog estimate over every event seen since startup, roughly 1% error
+    private long distinctPatients;
+
+    // ISO date (UTC) -> patients created that day
+    private Map<String, Long> registrationsPerDay;
+
+    public int getWindowMinutes() {
+        return windowMinutes;
+    }
+
+    public void setWindowMinutes(int windowMinutes) {
+        this.windowMinutes = windowMinutes;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public void setCreated(long created) {
+        this.created = created;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(long deleted) {
+        this.deleted = deleted;
+    }
+
+    public long getProjectedPatients() {
+        return projectedPatients;
+    }
+
+    public void setProjectedPatients(long projectedPatients) {
+        this.projectedPatients = projectedPatients;
+    }
+
+    public long getDistinctPatients() {
+        return distinctPatients;
+    }
+
+    public void setDistinctPatients(long distinctPatients) {
+        this.distinctPatients = distinctPatients;
+    }
+
+    public Map<String, Long> getRegistrationsPerDay() {
+        return registrationsPerDay;
+    }
+
+    public void setRegistrationsPerDay(Map<String, Long> registrationsPerDay) {
+        this.registrationsPerDay = registrationsPerDay;
+    }
+}
@@ -1,30 +1,212 @@
 package com.pm.analyticsservice.kafka;
 
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.pm.analyticsservice.aggregation.PatientEventAggregator;
+import com.pm.analyticsservice.aggregation.PatientProjection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 import patient.events.PatientEvent;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Batch listener: each call receives everything one poll returned for this consumer's partitions
+// (up to spring.kafka.consumer.max-poll-records). Offsets are committed once per batch after this
+// method returns, and spring.kafka.listener.concurrency consumers split the partitions between them.
+// With analytics.consumer.workers above 1 a batch is additionally spread over worker threads by key
 @Service
 public class KafkaConsumer {
 
     private static final Logger log = LoggerFactory.getLogger(KafkaConsumer.class);
+    private static final String TRACE_PARENT = "traceparent";
+
+    private final PatientEventAggregator patientEventAggregator;
+    private final PatientProjection patientProjection;
+    private final MeterRegistry meterRegistry;
+    private final Counter consumedEvents;
+    private final Counter invalidEvents;
+    private final Counter skippedEvents;
+    private final DistributionSummary batchSize;
+    private final Timer batchProcessing;
+    private final Map<TopicPartition, AtomicLong> partitionLag = new ConcurrentHashMap<>();
+    private final Tracer tracer;
+    private final Propagator propagator;
+    private final int workers;
+    // shared by all listener threads; null when every batch is processed on its listener thread
+    private final ExecutorService workerPool;
+
+    public KafkaConsumer(PatientEventAggregator patientEventAggregator, PatientProjection patientProjection,
+                         MeterRegistry meterRegistry, Tracer tracer, Propagator propagator,
+                         @Value("${analytics.consumer.workers:1}") int workers) {
+        this.patientEventAggregator = patientEventAggregator;
+        this.patientProjection = patientProjection;
+        this.workers = Math.max(1, workers);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workerPool = this.workers == 1 ? null : Executors.newFixedThreadPool(this.workers, runnable -> {
+            Thread thread = new Thread(runnable, "patient-event-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.propagator = propagator;
+        // rate(analytics_events_consumed_total) gives records/sec
+        this.consumedEvents = meterRegistry.counter("analytics.events.consumed");
+        this.invalidEvents = meterRegistry.counter("analytics.events.invalid");
+        // redelivered or out-of-date events, recognised by their version
+        this.skippedEvents = meterRegistry.counter("analytics.events.skipped");
+        this.batchSize = meterRegistry.summary("analytics.events.batch.size");
+        this.batchProcessing = meterRegistry.timer("analytics.events.batch.processing");
+    }
 
     @KafkaListener(topics="patient", groupId = "analytics-service")
-    public void consumeEvent(byte[] event){
+    public void consumeEvents(List<ConsumerRecord<String, byte[]>> records, Consumer<?, ?> consumer){
+        batchProcessing.record(() -> {
+            int consumed = workerPool == null || records.size() < 2
+                    ? process(records)
+                    : processInLanes(records);
+
+            consumedEvents.increment(consumed);
+            batchSize.record(records.size());
+        });
+
+        recordLag(records, consumer);
+    }
+
+    // Splits the batch into one lane per worker. Records with the same key (patient id) always go to the
+    // same lane and a lane is processed in order by a single worker, so each patient's events are applied
+    // in partition order while different patients are processed in parallel. The listener waits for every
+    // lane before returning, so offsets are still only committed once the whole batch has been applied
+    private int processInLanes(List<ConsumerRecord<String, byte[]>> records) {
+        List<List<ConsumerRecord<String, byte[]>>> lanes = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            lanes.add(new ArrayList<>());
+        }
+        for (ConsumerRecord<String, byte[]> record : records) {
+            // records without a key predate keyed sends; keeping them per partition preserves their order
+            int hash = record.key() != null ? record.key().hashCode() : record.partition();
+            lanes.get(Math.floorMod(hash, workers)).add(record);
+        }
+
+        List<CompletableFuture<Integer>> results = lanes.stream()
+                .filter(lane -> !lane.isEmpty())
+                .map(lane -> CompletableFuture.supplyAsync(() -> process(lane), workerPool))
+                .toList();
         try {
-            PatientEvent patientEvent = PatientEvent.parseFrom(event);
-            // Perform business logic
-            log.info("Received Patient Event: [PatientId={},PatientName={},PatientEmail={}]",
-                    patientEvent.getPatientId(),
-                    patientEvent.getName(),
-                    patientEvent.getEmail());
-
-        } catch (InvalidProtocolBufferException e) {
-            log.error("Unable to deserialize event: {}", e.getMessage());
+            return results.stream().mapToInt(CompletableFuture::join).sum();
+        } catch (CompletionException e) {
+            // fail the batch like the single-threaded path would, so the container redelivers it
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
     }
 
+    private int process(List<ConsumerRecord<String, byte[]>> records) {
+        int consumed = 0;
+        for (ConsumerRecord<String, byte[]> record : records) {
+            Span span = startSpan(record);
+            try (Tracer.SpanInScope scope = span != null ? tracer.withSpan(span) : null) {
+                PatientEvent patientEvent = PatientEvent.parseFrom(record.value());
+                log.debug("Received Patient Event: [PatientId={},Type={},Version={}]",
+                        patientEvent.getPatientId(),
+                        PatientProjection.typeOf(patientEvent),
+                        patientEvent.getVersion());
+
+                if (patientProjection.apply(patientEvent)) {
+                    // event time is the producer/broker timestamp of the record
+                    patientEventAggregator.apply(patientEvent, record.timestamp());
+                } else {
+                    skippedEvents.increment();
+                }
+                consumed++;
+            } catch (InvalidProtocolBufferException e) {
+                invalidEvents.increment();
+                if (span != null) {
+                    span.error(e);
+                }
+                log.error("Unable to deserialize event at {}-{}@{}: {}",
+                        record.topic(), record.partition(), record.offset(), e.getMessage());
+            } finally {
+                if (span != null) {
+                    span.end();
+                }
+            }
+        }
+        return consumed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (workerPool != null) {
+            workerPool.shutdown();
+        }
+    }
+
+    // Batch listeners get no span per record from Spring Kafka, so one is started here as a child of the
+    // trace context patient-service put in the record headers. Records sent without one are not traced
+    private Span startSpan(ConsumerRecord<String, byte[]> record) {
+        if (record.headers().lastHeader(TRACE_PARENT) == null) {
+            return null;
+        }
+        return propagator.extract(record, (carrier, key) -> {
+                    Header header = carrier.headers().lastHeader(key);
+                    return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+                })
+                .name("patient event process")
+                .kind(Span.Kind.CONSUMER)
+                .tag("messaging.kafka.partition", String.valueOf(record.partition()))
+                .tag("messaging.kafka.offset", String.valueOf(record.offset()))
+                .start();
+    }
+
+    // Lag is read from the consumer's own fetch position, so it costs no extra broker round trip
+    private void recordLag(List<ConsumerRecord<String, byte[]>> records, Consumer<?, ?> consumer) {
+        Set<TopicPartition> partitions = records.stream()
+                .map(record -> new TopicPartition(record.topic(), record.partition()))
+                .collect(Collectors.toSet());
+
+        for (TopicPartition partition : partitions) {
+            consumer.currentLag(partition).ifPresent(lag ->
+                    partitionLag.computeIfAbsent(partition, this::registerLagGauge).set(lag));
+        }
+    }
+
+    private AtomicLong registerLagGauge(TopicPartition partition) {
+        AtomicLong lag = new AtomicLong();
+        Gauge.builder("analytics.consumer.lag", lag, AtomicLong::get)
+                .tag("topic", partition.topic())
+                .tag("partition", String.valueOf(partition.partition()))
+                .register(meterRegistry);
+        return lag;
+    }
+
 }
@@ -0,0 +1,70 @@
+package com.pm.analyticsservice.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertEquals(0, new HyperLogLog(14).estimate());
+    }
+
+    @Test
+    void duplicatesAreCountedOnce() {
+        HyperLogLog sketch = new HyperLogLog(14);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("patient-1@example.com");
+            sketch.add("patient-2@example.com");
+        }
+
+        assertEquals(2, sketch.estimate());
+    }
+
+    @Test
+    void smallCardinalityIsNearlyExact() {
+        HyperLogLog sketch = new HyperLogLog(14);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("patient-" + i);
+        }
+
+        // linear counting range
+        assertWithin(1000, sketch.estimate(), 0.02);
+    }
+
+    @Test
+    void largeCardinalityStaysWithinTheStandardError() {
+        HyperLogLog sketch = new HyperLogLog(14);
+        for (int i = 0; i < 500_000; i++) {
+            sketch.add("patient-" + i);
+        }
+
+        // about 0.8% standard error at precision 14, allow four of them
+        assertWithin(500_000, sketch.estimate(), 0.035);
+    }
+
+    @Test
+    void lowerPrecisionIsLessAccurateButStillBounded() {
+        HyperLogLog sketch = new HyperLogLog(8);
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add("patient-" + i);
+        }
+
+        // 6.5% standard error at precision 8
+        assertWithin(100_000, sketch.estimate(), 0.25);
+    }
+
+    @Test
+    void rejectsPrecisionOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(19));
+    }
+
+    private static void assertWithin(long expected, long actual, double relativeError) {
+        assertTrue(Math.abs(actual - expected) <= expected * relativeError,
+                "estimate " + actual + " is not within " + relativeError + " of " + expected);
+    }
+}
@@ -0,0 +1,154 @@
+package com.pm.analyticsservice.aggregation;
+
+import com.google.protobuf.FieldMask;
+import com.pm.analyticsservice.dto.PatientSnapshotDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatientProjectionTest {
+
+    private static final String ID = "123e4567-e89b-12d3-a456-426614174000";
+
+    private PatientProjection projection;
+
+    @BeforeEach
+    void setUp() {
+        projection = new PatientProjection(1000, Duration.ofHours(1), Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void updateOverwritesOnlyMaskedFields() {
+        projection.apply(created(0));
+        // the event also carries a name, but the mask only names the email
+        projection.apply(updated(1, "email").setEmail("new@example.com").setName("Ignored").build());
+
+        PatientSnapshotDTO patient = projection.find(ID).orElseThrow();
+        assertEquals(1L, patient.getVersion());
+        assertEquals("John Doe", patient.getName());
+        assertEquals("new@example.com", patient.getEmail());
+        assertEquals("123 Main St", patient.getAddress());
+        assertEquals("2024-01-10", patient.getRegisteredDate());
+    }
+
+    @Test
+    void unknownMaskPathsAreSkipped() {
+        projection.apply(created(0));
+
+        assertTrue(projection.apply(updated(1, "phone", "address").setAddress("1 New Rd").build()));
+        assertEquals("1 New Rd", projection.find(ID).orElseThrow().getAddress());
+    }
+
+    @Test
+    void duplicateAndOlderVersionsAreDropped() {
+        assertTrue(projection.apply(created(0)));
+        assertTrue(projection.apply(updated(2, "name").setName("Second").build()));
+
+        assertFalse(projection.apply(updated(2, "name").setName("Duplicate").build()));
+        assertFalse(projection.apply(updated(1, "name").setName("Stale").build()));
+        assertFalse(projection.apply(created(0)));
+        assertEquals("Second", projection.find(ID).orElseThrow().getName());
+    }
+
+    @Test
+    void deleteLeavesTombstoneThatBlocksLateUpdates() {
+        projection.apply(created(0));
+        assertTrue(projection.apply(PatientEvent.newBuilder()
+                .setPatientId(ID).setType(PatientEventType.PATIENT_DELETED).setVersion(2).build()));
+
+        assertFalse(projection.apply(updated(1, "name").setName("Late").build()));
+        assertTrue(projection.find(ID).isEmpty());
+    }
+
+    @Test
+    void onlyPatientsWhoseCreateWasSeenAreCounted() {
+        projection.apply(created(0));
+        assertEquals(1, projection.projectedPatients());
+
+        // an update for a patient created before startup is applied but not counted
+        projection.apply(updated(3, "name").setPatientId("other").setName("Someone").build());
+        assertEquals(1, projection.projectedPatients());
+
+        projection.apply(PatientEvent.newBuilder()
+                .setPatientId("other").setType(PatientEventType.PATIENT_DELETED).setVersion(4).build());
+        assertEquals(1, projection.projectedPatients());
+
+        projection.apply(PatientEvent.newBuilder()
+                .setPatientId(ID).setType(PatientEventType.PATIENT_DELETED).setVersion(1).build());
+        assertEquals(0, projection.projectedPatients());
+    }
+
+    @Test
+    void expiredPatientLeavesTheCount() {
+        AtomicLong nanos = new AtomicLong();
+        PatientProjection expiring = new PatientProjection(1000, Duration.ofHours(24), Duration.ofHours(1),
+                new SimpleMeterRegistry(), nanos::get);
+        expiring.apply(created(0));
+        assertEquals(1, expiring.projectedPatients());
+
+        nanos.addAndGet(Duration.ofHours(25).toNanos());
+        assertEquals(0, expiring.projectedPatients());
+
+        // a delete for the expired patient subtracts nothing more, a redelivered create counts it once again
+        expiring.apply(PatientEvent.newBuilder()
+                .setPatientId(ID).setType(PatientEventType.PATIENT_DELETED).setVersion(1).build());
+        assertEquals(0, expiring.projectedPatients());
+        expiring.apply(created(0).toBuilder().setPatientId("other").build());
+        expiring.apply(created(0).toBuilder().setPatientId("other").build());
+        assertEquals(1, expiring.projectedPatients());
+    }
+
+    @Test
+    void evictedPatientLeavesTheCount() {
+        PatientProjection small = new PatientProjection(2, Duration.ofHours(24), Duration.ofHours(1),
+                new SimpleMeterRegistry(), () -> 0);
+        for (int i = 0; i < 10; i++) {
+            small.apply(created(0).toBuilder().setPatientId("patient-" + i).build());
+        }
+
+        assertEquals(2, small.projectedPatients());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void legacyStringTypeIsStillRead() {
+        PatientEvent legacy = PatientEvent.newBuilder()
+                .setPatientId(ID).setName("John Doe").setEmail("john.doe@example.com")
+                .setEventType("PATIENT_CREATED")
+                .build();
+
+        assertEquals(PatientEventType.PATIENT_CREATED, PatientProjection.typeOf(legacy));
+        assertTrue(projection.apply(legacy));
+    }
+
+    private static PatientEvent created(long version) {
+        return PatientEvent.newBuilder()
+                .setPatientId(ID)
+                .setType(PatientEventType.PATIENT_CREATED)
+                .setVersion(version)
+                .setName("John Doe")
+                .setEmail("john.doe@example.com")
+                .setAddress("123 Main St")
+                .setDateOfBirth("1985-06-15")
+                .setRegisteredDate("2024-01-10")
+                .build();
+    }
+
+    private static PatientEvent.Builder updated(long version, String... changedFields) {
+        return PatientEvent.newBuilder()
+                .setPatientId(ID)
+                .setType(PatientEventType.PATIENT_UPDATED)
+                .setVersion(version)
+                .setChangedFields(FieldMask.newBuilder().addAllPaths(List.of(changedFields)));
+    }
+}
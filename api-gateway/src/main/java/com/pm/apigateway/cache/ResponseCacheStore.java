@@ -0,0 +1,75 @@
+package com.pm.apigateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bodies of cacheable GET responses, grouped in regions (one per backend resource, e.g. "patients").
+// Memory is bounded by the total body size. A write through the gateway drops its whole region; the TTL
+// bounds how stale an entry can get when the write went through another gateway instance
+@Component
+public class ResponseCacheStore {
+
+    private final Cache<Key, CachedResponse> responses;
+    // bumped by every invalidation, so a GET that started before a write cannot store its older response after it
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final long maxEntrySize;
+
+    public ResponseCacheStore(@Value("${gateway.response-cache.max-size:64MB}") DataSize maxSize,
+                              @Value("${gateway.response-cache.max-entry-size:1MB}") DataSize maxEntrySize,
+                              @Value("${gateway.response-cache.ttl:30s}") Duration ttl,
+                              MeterRegistry meterRegistry) {
+        this.maxEntrySize = maxEntrySize.toBytes();
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Key key, CachedResponse response) -> response.body().length + key.uri().length())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        // exposes cache.gets{result=hit|miss}, cache.evictions etc. under cache=gatewayResponses
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "gatewayResponses");
+    }
+
+    public CachedResponse get(Key key) {
+        return responses.getIfPresent(key);
+    }
+
+    public long generation(String region) {
+        return generations.computeIfAbsent(region, r -> new AtomicLong()).get();
+    }
+
+    // stores the response unless it is too large or the region was invalidated since the given generation
+    public void put(Key key, CachedResponse response, long generation) {
+        if (response.body().length > maxEntrySize) {
+            return;
+        }
+        responses.put(key, response);
+        if (generation(key.region()) != generation) {
+            // lost a race with invalidate(), which may already have swept the region
+            responses.invalidate(key);
+        }
+    }
+
+    public void invalidate(String region) {
+        generations.computeIfAbsent(region, r -> new AtomicLong()).incrementAndGet();
+        responses.asMap().keySet().removeIf(key -> key.region().equals(region));
+    }
+
+    // uri includes the query string; accept is the request's Accept header, the only one responses vary on
+    public record Key(String region, String uri, String accept) {
+    }
+
+    public record CachedResponse(String etag, HttpHeaders headers, byte[] body) {
+    }
+}
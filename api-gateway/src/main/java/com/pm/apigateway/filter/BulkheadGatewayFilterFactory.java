@@ -0,0 +1,115 @@
+package com.pm.apigateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Caps the requests in flight to one downstream. Past the cap a request fails fast with 503 instead of
+// queueing behind a service that has slowed down, so a slow service cannot hold every gateway connection.
+// Routes naming the same bulkhead share its cap; the first route to declare a name sets it.
+// Usage in a route: "- Bulkhead=<name>" for the default cap, or "- Bulkhead=<name>,<maxConcurrent>"
+@Component
+public class BulkheadGatewayFilterFactory extends AbstractGatewayFilterFactory<BulkheadGatewayFilterFactory.Config> {
+
+    private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final int defaultMaxConcurrent;
+
+    public BulkheadGatewayFilterFactory(@Value("${gateway.bulkhead.max-concurrent:200}") int defaultMaxConcurrent,
+                                        MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.defaultMaxConcurrent = defaultMaxConcurrent;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Config newConfig() {
+        Config config = new Config();
+        config.setMaxConcurrent(defaultMaxConcurrent);
+        return config;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("name", "maxConcurrent");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(config.getName(),
+                name -> new Bulkhead(name, config.getMaxConcurrent()));
+
+        return (exchange, chain) -> {
+            if (!bulkhead.tryAcquire()) {
+                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                return exchange.getResponse().setComplete();
+            }
+            // released on completion, error and cancellation alike
+            return chain.filter(exchange).doFinally(signal -> bulkhead.release());
+        };
+    }
+
+    private final class Bulkhead {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final int maxConcurrent;
+        private final Counter rejected;
+
+        Bulkhead(String name, int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+            this.rejected = Counter.builder("gateway.bulkhead.rejected")
+                    .tag("name", name)
+                    .register(meterRegistry);
+            Gauge.builder("gateway.bulkhead.in_flight", inFlight, AtomicInteger::get)
+                    .tag("name", name)
+                    .register(meterRegistry);
+        }
+
+        boolean tryAcquire() {
+            if (inFlight.incrementAndGet() > maxConcurrent) {
+                inFlight.decrementAndGet();
+                rejected.increment();
+                return false;
+            }
+            return true;
+        }
+
+        void release() {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    public static class Config {
+
+        private String name;
+        private int maxConcurrent;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+    }
+}
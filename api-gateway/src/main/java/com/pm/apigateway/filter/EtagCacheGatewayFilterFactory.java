@@ -0,0 +1,155 @@
+package com.pm.apigateway.filter;
+
+import com.pm.apigateway.cache.ResponseCacheStore;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// Gateway-side cache for GET responses that carry an ETag. While an entry is cached the backend is not
+// called at all: a request whose If-None-Match matches gets 304, any other gets the cached body.
+// POST/PUT/PATCH/DELETE through a route with the same region invalidate the region once they succeed.
+// Usage in a route, after JwtValidation: "- EtagCache=<region>", e.g. "- EtagCache=patients"
+@Component
+public class EtagCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<EtagCacheGatewayFilterFactory.Config> {
+
+    private static final String CACHE_HEADER = "X-Cache";
+    // response headers kept with a cached body, the rest (dates, rate limits, connection headers) are per response
+    private static final List<String> STORED_HEADERS =
+            List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.CACHE_CONTROL, HttpHeaders.VARY);
+
+    private final ResponseCacheStore responseCacheStore;
+
+    public EtagCacheGatewayFilterFactory(ResponseCacheStore responseCacheStore) {
+        super(Config.class);
+        this.responseCacheStore = responseCacheStore;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("region");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            HttpMethod method = request.getMethod();
+
+            if (method == HttpMethod.GET) {
+                String query = request.getURI().getRawQuery();
+                ResponseCacheStore.Key key = new ResponseCacheStore.Key(config.getRegion(),
+                        query == null ? request.getURI().getRawPath() : request.getURI().getRawPath() + "?" + query,
+                        request.getHeaders().getFirst(HttpHeaders.ACCEPT));
+                ResponseCacheStore.CachedResponse cached = responseCacheStore.get(key);
+                if (cached != null) {
+                    return writeCached(exchange.getResponse(), request, cached);
+                }
+                return chain.filter(exchange.mutate().response(storingResponse(exchange.getResponse(), key)).build());
+            }
+
+            if (method == HttpMethod.HEAD || method == HttpMethod.OPTIONS) {
+                return chain.filter(exchange);
+            }
+
+            // a write: whatever it touched may appear in any cached read of the region
+            return chain.filter(exchange).doFinally(signal -> {
+                if (exchange.getResponse().getStatusCode() == null
+                        || exchange.getResponse().getStatusCode().is2xxSuccessful()) {
+                    responseCacheStore.invalidate(config.getRegion());
+                }
+            });
+        };
+    }
+
+    private ServerHttpResponse storingResponse(ServerHttpResponse response, ResponseCacheStore.Key key) {
+        long generation = responseCacheStore.generation(key.region());
+        response.getHeaders().set(CACHE_HEADER, "MISS");
+
+        return new ServerHttpResponseDecorator(response) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                String etag = getHeaders().getETag();
+                if (getStatusCode() == null || getStatusCode().value() != HttpStatus.OK.value() || etag == null) {
+                    // a 304 from the backend has no body to keep, errors are never cached
+                    return super.writeWith(body);
+                }
+
+                return DataBufferUtils.join(body)
+                        .map(joined -> {
+                            byte[] bytes = new byte[joined.readableByteCount()];
+                            joined.read(bytes);
+                            DataBufferUtils.release(joined);
+                            return bytes;
+                        })
+                        .defaultIfEmpty(new byte[0])
+                        .flatMap(bytes -> {
+                            HttpHeaders headers = new HttpHeaders();
+                            STORED_HEADERS.forEach(name -> {
+                                if (getHeaders().containsKey(name)) {
+                                    headers.put(name, getHeaders().get(name));
+                                }
+                            });
+                            responseCacheStore.put(key, new ResponseCacheStore.CachedResponse(etag, headers, bytes),
+                                    generation);
+                            return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                        });
+            }
+        };
+    }
+
+    private static Mono<Void> writeCached(ServerHttpResponse response, ServerHttpRequest request,
+                                          ResponseCacheStore.CachedResponse cached) {
+        response.getHeaders().setETag(cached.etag());
+        response.getHeaders().set(CACHE_HEADER, "HIT");
+
+        if (matches(request.getHeaders().getIfNoneMatch(), cached.etag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().putAll(cached.headers());
+        response.getHeaders().setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    // weak comparison, as for GET conditional requests (RFC 9110 13.1.2)
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        String opaqueTag = stripWeak(etag);
+        for (String candidate : ifNoneMatch) {
+            if (candidate.equals("*") || stripWeak(candidate).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    public static class Config {
+
+        private String region;
+
+        public String getRegion() {
+            return region;
+        }
+
+        public void setRegion(String region) {
+            this.region = region;
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.pm.apigateway.filter;
 
+import com.pm.apigateway.jwt.LocalJwtValidator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreaker;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreakerFactory;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
@@ -9,15 +14,41 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
 
 // Marks class as a bean
 @Component
 public class JwtValidationGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
 
+    // exchange attribute holding the verified token subject, for filters later in the route such as RateLimit
+    public static final String SUBJECT_ATTRIBUTE = JwtValidationGatewayFilterFactory.class.getName() + ".subject";
+
     private final WebClient webClient;
+    private final LocalJwtValidator localJwtValidator;
+    private final boolean remoteFallback;
+    private final Counter remoteValidations;
+    private final ReactiveCircuitBreaker authServiceCircuitBreaker;
+    private final Duration remoteTimeout;
+    private final Counter remoteUnavailable;
 
-    public JwtValidationGatewayFilterFactory(WebClient.Builder webClientBuilder, @Value("${auth.service.url}") String authServiceUrl){
+    public JwtValidationGatewayFilterFactory(WebClient.Builder webClientBuilder,
+                                             @Value("${auth.service.url}") String authServiceUrl,
+                                             LocalJwtValidator localJwtValidator,
+                                             // ask auth-service when local verification rejects a token
+                                             @Value("${jwt.validation.remote-fallback:false}") boolean remoteFallback,
+                                             ReactiveCircuitBreakerFactory<?, ?> circuitBreakerFactory,
+                                             @Value("${jwt.validation.remote-timeout:2s}") Duration remoteTimeout,
+                                             MeterRegistry meterRegistry){
         this.webClient = webClientBuilder.baseUrl(authServiceUrl).build();
+        this.localJwtValidator = localJwtValidator;
+        this.remoteFallback = remoteFallback;
+        this.remoteValidations = meterRegistry.counter("gateway.jwt.remote.validations");
+        this.authServiceCircuitBreaker = circuitBreakerFactory.create("auth-service");
+        this.remoteTimeout = remoteTimeout;
+        this.remoteUnavailable = meterRegistry.counter("gateway.jwt.remote.unavailable");
     }
 
     @Override
@@ -30,12 +61,50 @@ public class JwtValidationGatewayFilterFactory extends AbstractGatewayFilterFact
                 return exchange.getResponse().setComplete();
             }
 
-            return webClient.get()
+            // verify signature and expiry in-process; only go to auth-service before the key set is loaded,
+            // for a kid the gateway does not know yet, or when fallback is on
+            if(localJwtValidator.isEnabled()){
+                String jwt = token.substring(7);
+                LocalJwtValidator.Result result = localJwtValidator.validate(jwt);
+                if(result == LocalJwtValidator.Result.VALID){
+                    String subject = localJwtValidator.subject(jwt);
+                    if(subject != null){
+                        exchange.getAttributes().put(SUBJECT_ATTRIBUTE, subject);
+                    }
+                    return chain.filter(exchange);
+                }
+
+                if(result == LocalJwtValidator.Result.INVALID && !remoteFallback){
+                    exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+                    return exchange.getResponse().setComplete();
+                }
+            }
+
+            remoteValidations.increment();
+            Mono<HttpStatus> verdict = webClient.get()
                     .uri("/validate")
                     .header(HttpHeaders.AUTHORIZATION, token)
                     .retrieve()
                     .toBodilessEntity()
-                    .then(chain.filter(exchange));
+                    .map(response -> HttpStatus.OK)
+                    // a rejected token is an answer, it must not count against auth-service's circuit breaker
+                    .onErrorResume(WebClientResponseException.class, e -> e.getStatusCode().is4xxClientError()
+                            ? Mono.just(HttpStatus.UNAUTHORIZED)
+                            : Mono.error(e))
+                    .timeout(remoteTimeout);
+
+            // while auth-service is failing or slow the breaker opens and requests fail fast with 503
+            return authServiceCircuitBreaker.run(verdict, t -> {
+                        remoteUnavailable.increment();
+                        return Mono.just(HttpStatus.SERVICE_UNAVAILABLE);
+                    })
+                    .flatMap(status -> {
+                        if(status == HttpStatus.OK){
+                            return chain.filter(exchange);
+                        }
+                        exchange.getResponse().setStatusCode(status);
+                        return exchange.getResponse().setComplete();
+                    });
         };
     }
 }
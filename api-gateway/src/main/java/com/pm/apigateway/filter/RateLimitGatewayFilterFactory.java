@@ -0,0 +1,122 @@
+package com.pm.apigateway.filter;
+
+import com.pm.apigateway.ratelimit.TokenBucketStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ipresolver.RemoteAddressResolver;
+import org.springframework.cloud.gateway.support.ipresolver.XForwardedRemoteAddressResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Token-bucket rate limiting per client, without Redis (see TokenBucketStore). After JwtValidation the
+// client is the token subject, otherwise (e.g. /auth/login) the caller's IP address.
+// Usage in a route: "- RateLimit" for the defaults, or "- RateLimit=<capacity>,<refillPerSecond>"
+@Component
+public class RateLimitGatewayFilterFactory extends AbstractGatewayFilterFactory<RateLimitGatewayFilterFactory.Config> {
+
+    private static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    private final TokenBucketStore tokenBucketStore;
+    private final long defaultCapacity;
+    private final double defaultRefillPerSecond;
+    private final Counter rejectedRequests;
+    private final RemoteAddressResolver remoteAddressResolver;
+
+    public RateLimitGatewayFilterFactory(TokenBucketStore tokenBucketStore,
+                                         // burst a client may send at once
+                                         @Value("${gateway.rate-limit.capacity:100}") long defaultCapacity,
+                                         // sustained requests per second per client
+                                         @Value("${gateway.rate-limit.refill-per-second:50}") double defaultRefillPerSecond,
+                                         @Value("${gateway.rate-limit.trusted-proxies:0}") int trustedProxies,
+                                         MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.tokenBucketStore = tokenBucketStore;
+        this.defaultCapacity = defaultCapacity;
+        this.defaultRefillPerSecond = defaultRefillPerSecond;
+        this.rejectedRequests = meterRegistry.counter("gateway.ratelimit.rejected");
+        // X-Forwarded-For is counted from the right: entry n from the end was added by the n-th trusted proxy,
+        // anything left of it is whatever the client chose to send
+        this.remoteAddressResolver = trustedProxies > 0
+                ? XForwardedRemoteAddressResolver.maxTrustedIndex(trustedProxies)
+                : new RemoteAddressResolver() {
+                };
+    }
+
+    @Override
+    public Config newConfig() {
+        Config config = new Config();
+        config.setCapacity(defaultCapacity);
+        config.setRefillPerSecond(defaultRefillPerSecond);
+        return config;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("capacity", "refillPerSecond");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            TokenBucketStore.Probe probe = tokenBucketStore.tryConsume(
+                    clientKey(exchange), config.getCapacity(), config.getRefillPerSecond());
+
+            if (probe.allowed()) {
+                exchange.getResponse().getHeaders().set(REMAINING_HEADER, String.valueOf(probe.remaining()));
+                return chain.filter(exchange);
+            }
+
+            rejectedRequests.increment();
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(probe.nanosToRefill() + 999_999_999));
+            exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            exchange.getResponse().getHeaders().set(REMAINING_HEADER, "0");
+            return exchange.getResponse().setComplete();
+        };
+    }
+
+    private String clientKey(ServerWebExchange exchange) {
+        String subject = exchange.getAttribute(JwtValidationGatewayFilterFactory.SUBJECT_ATTRIBUTE);
+        if (subject != null) {
+            return "user:" + subject;
+        }
+
+        // behind the load balancer, the address it appended to X-Forwarded-For (gateway.rate-limit.trusted-proxies)
+        InetSocketAddress remoteAddress = remoteAddressResolver.resolve(exchange);
+        if (remoteAddress != null && remoteAddress.getAddress() != null) {
+            return "ip:" + remoteAddress.getAddress().getHostAddress();
+        }
+        return "ip:unknown";
+    }
+
+    public static class Config {
+
+        private long capacity;
+        private double refillPerSecond;
+
+        public long getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(long capacity) {
+            this.capacity = capacity;
+        }
+
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        public void setRefillPerSecond(double refillPerSecond) {
+            this.refillPerSecond = refillPerSecond;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.pm.apigateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Collapses identical GETs that are in flight at the same time into one downstream call: the first request
+// (the leader) is proxied and its buffered response is written to every request that arrived while it was
+// running. A burst of N clients loading /api/patients/all then costs patient-service one query instead of N.
+// Requests are identical when URI (including the query), Accept and If-None-Match match, so only put this on routes
+// whose response does not depend on who is asking, after JwtValidation
+@Component
+public class RequestCoalescingGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
+
+    private final ConcurrentMap<String, Sinks.One<SharedResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaderRequests;
+    private final Counter coalescedRequests;
+
+    public RequestCoalescingGatewayFilterFactory(MeterRegistry meterRegistry) {
+        this.leaderRequests = Counter.builder("gateway.coalescing.requests")
+                .tag("role", "leader")
+                .register(meterRegistry);
+        this.coalescedRequests = Counter.builder("gateway.coalescing.requests")
+                .tag("role", "follower")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public GatewayFilter apply(Object config) {
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+
+            // conditional requests only share with each other, a 304 is no answer for a request without If-None-Match
+            String key = request.getURI() + "|" + request.getHeaders().getAccept()
+                    + "|" + request.getHeaders().getIfNoneMatch();
+            Sinks.One<SharedResponse> sink = Sinks.one();
+            Sinks.One<SharedResponse> leader = inFlight.putIfAbsent(key, sink);
+
+            if (leader != null) {
+                coalescedRequests.increment();
+                // empty means the leader produced no response to share (error, cancelled), so go downstream alone
+                return leader.asMono()
+                        .flatMap(shared -> write(exchange.getResponse(), shared).thenReturn(true))
+                        .switchIfEmpty(Mono.defer(() -> chain.filter(exchange).thenReturn(true)))
+                        .then();
+            }
+
+            leaderRequests.increment();
+            ServerHttpResponseDecorator capturingResponse = new ServerHttpResponseDecorator(exchange.getResponse()) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    return DataBufferUtils.join(body)
+                            .map(joined -> {
+                                byte[] bytes = new byte[joined.readableByteCount()];
+                                joined.read(bytes);
+                                DataBufferUtils.release(joined);
+                                return bytes;
+                            })
+                            .defaultIfEmpty(new byte[0])
+                            .flatMap(bytes -> {
+                                HttpHeaders headers = new HttpHeaders();
+                                headers.putAll(getHeaders());
+                                sink.tryEmitValue(new SharedResponse(getStatusCode(), headers, bytes));
+                                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                            });
+                }
+            };
+
+            return chain.filter(exchange.mutate().response(capturingResponse).build())
+                    .doFinally(signal -> {
+                        // later arrivals start a new downstream call; no-op for followers if a response was shared
+                        inFlight.remove(key, sink);
+                        sink.tryEmitEmpty();
+                    });
+        };
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, SharedResponse shared) {
+        response.setStatusCode(shared.status());
+        // headers this request already has of its own, such as X-RateLimit-Remaining, are kept
+        shared.headers().forEach((name, values) -> response.getHeaders().putIfAbsent(name, values));
+        response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+        response.getHeaders().setContentLength(shared.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+}
@@ -0,0 +1,91 @@
+package com.pm.apigateway.jwt;
+
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.security.Key;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cached copy of auth-service's token verification keys (/.well-known/jwks.json), keyed by kid. The set is
+// refetched on a schedule, and early when a token names a kid that is not in it (a key was rotated in), at
+// most once per jwt.jwks.min-refresh-interval so tokens with made-up kids cannot hammer auth-service.
+// Fetching never happens on the request path; until the first fetch succeeds isLoaded() is false
+@Component
+public class JwksKeySet {
+
+    private static final Logger log = LoggerFactory.getLogger(JwksKeySet.class);
+
+    private final WebClient webClient;
+    private final String jwksPath;
+    private final Duration requestTimeout;
+    private final long minRefreshIntervalNanos;
+    private final AtomicLong lastRefreshNanos = new AtomicLong(System.nanoTime());
+    private volatile Map<String, Key> keys = Map.of();
+    private volatile boolean loaded;
+
+    public JwksKeySet(WebClient.Builder webClientBuilder,
+                      @Value("${auth.service.url}") String authServiceUrl,
+                      @Value("${jwt.jwks.path:/.well-known/jwks.json}") String jwksPath,
+                      @Value("${jwt.jwks.request-timeout:2s}") Duration requestTimeout,
+                      @Value("${jwt.jwks.min-refresh-interval:30s}") Duration minRefreshInterval) {
+        this.webClient = webClientBuilder.baseUrl(authServiceUrl).build();
+        this.jwksPath = jwksPath;
+        this.requestTimeout = requestTimeout;
+        this.minRefreshIntervalNanos = minRefreshInterval.toNanos();
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // null when the kid is unknown, which also schedules an early refresh
+    public Key find(String kid) {
+        Key key = kid == null ? null : keys.get(kid);
+        if (key == null && kid != null) {
+            long last = lastRefreshNanos.get();
+            if (System.nanoTime() - last >= minRefreshIntervalNanos && lastRefreshNanos.compareAndSet(last, System.nanoTime())) {
+                refresh();
+            }
+        }
+        return key;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.jwks.refresh-interval-ms:300000}")
+    public void refresh() {
+        webClient.get()
+                .uri(jwksPath)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(requestTimeout)
+                .subscribe(this::update,
+                        e -> log.warn("Could not fetch JWKS from auth-service, keeping {} known key(s): {}",
+                                keys.size(), e.getMessage()));
+    }
+
+    private void update(String json) {
+        JwkSet jwkSet = Jwks.setParser().build().parse(json);
+
+        Map<String, Key> updated = new HashMap<>();
+        for (Jwk<?> jwk : jwkSet.getKeys()) {
+            if (jwk.getId() != null) {
+                updated.put(jwk.getId(), jwk.toKey());
+            }
+        }
+
+        if (!updated.keySet().equals(keys.keySet())) {
+            log.info("Loaded {} token verification key(s) from auth-service: {}", updated.size(), updated.keySet());
+        }
+        keys = Map.copyOf(updated);
+        loaded = !updated.isEmpty();
+    }
+}
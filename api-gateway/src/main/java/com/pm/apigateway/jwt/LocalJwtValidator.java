@@ -0,0 +1,144 @@
+package com.pm.apigateway.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.ProtectedHeader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
+
+// Verifies JWTs inside the gateway against auth-service's public keys (see JwksKeySet), so a proxied
+// request no longer needs an HTTP round trip to auth-service /validate.
+// Tokens that verified successfully are remembered until they expire (or the cache TTL passes).
+// Revocation is checked on every request, including for remembered tokens
+@Component
+public class LocalJwtValidator {
+
+    public enum Result {
+        VALID,
+        INVALID,
+        // signed with a key the gateway has not fetched yet, only auth-service can tell
+        UNKNOWN_KEY
+    }
+
+    private final JwksKeySet jwksKeySet;
+    private final JwtParser jwtParser;
+    private final RevokedTokens revokedTokens;
+    private final Cache<String, ValidatedToken> validatedTokens;
+    private final Counter verifiedTokens;
+    private final Counter rejectedTokens;
+    private final Counter unknownKeyTokens;
+
+    public LocalJwtValidator(JwksKeySet jwksKeySet,
+                             @Value("${jwt.validation.cache.max-size:10000}") long cacheMaxSize,
+                             @Value("${jwt.validation.cache.ttl:5m}") Duration cacheTtl,
+                             RevokedTokens revokedTokens,
+                             MeterRegistry meterRegistry) {
+        this.jwksKeySet = jwksKeySet;
+        this.revokedTokens = revokedTokens;
+
+        // the kid header picks the verification key; HMAC and unsigned tokens find no key and are rejected
+        this.jwtParser = Jwts.parser()
+                .keyLocator(header -> {
+                    String kid = header instanceof ProtectedHeader protectedHeader ? protectedHeader.getKeyId() : null;
+                    Key key = jwksKeySet.find(kid);
+                    if (key == null) {
+                        throw new UnknownKeyException(kid);
+                    }
+                    return key;
+                })
+                .build();
+
+        // an entry never outlives the token it vouches for
+        this.validatedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(Expiry.creating((String token, ValidatedToken validated) -> {
+                    Duration untilExpiry = Duration.between(Instant.now(), validated.expiresAt());
+                    if (untilExpiry.isNegative()) {
+                        return Duration.ZERO;
+                    }
+                    return untilExpiry.compareTo(cacheTtl) < 0 ? untilExpiry : cacheTtl;
+                }))
+                .recordStats()
+                .build();
+
+        // exposes cache.gets{result=hit|miss}, cache.evictions etc. under cache=jwtValidation
+        CaffeineCacheMetrics.monitor(meterRegistry, validatedTokens, "jwtValidation");
+        this.verifiedTokens = Counter.builder("gateway.jwt.local.validations")
+                .tag("result", "valid")
+                .register(meterRegistry);
+        this.rejectedTokens = Counter.builder("gateway.jwt.local.validations")
+                .tag("result", "invalid")
+                .register(meterRegistry);
+        this.unknownKeyTokens = Counter.builder("gateway.jwt.local.validations")
+                .tag("result", "unknown_key")
+                .register(meterRegistry);
+    }
+
+    // false until the first key set has been fetched from auth-service
+    public boolean isEnabled() {
+        return jwksKeySet.isLoaded();
+    }
+
+    public Result validate(String token) {
+        ValidatedToken cached = validatedTokens.getIfPresent(token);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return isRevoked(cached) ? Result.INVALID : Result.VALID;
+        }
+
+        try {
+            // verifies the signature and rejects expired tokens
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+            Instant expiresAt = claims.getExpiration() != null
+                    ? claims.getExpiration().toInstant()
+                    : Instant.MAX;
+            ValidatedToken validated = new ValidatedToken(claims.getId(), claims.getSubject(), expiresAt);
+            validatedTokens.put(token, validated);
+            if (isRevoked(validated)) {
+                return Result.INVALID;
+            }
+            verifiedTokens.increment();
+            return Result.VALID;
+        } catch (UnknownKeyException e) {
+            unknownKeyTokens.increment();
+            return Result.UNKNOWN_KEY;
+        } catch (JwtException | IllegalArgumentException e) {
+            rejectedTokens.increment();
+            return Result.INVALID;
+        }
+    }
+
+    // subject of a token that validate() accepted, null if it was not verified locally
+    public String subject(String token) {
+        ValidatedToken validated = validatedTokens.getIfPresent(token);
+        return validated != null ? validated.subject() : null;
+    }
+
+    private boolean isRevoked(ValidatedToken validated) {
+        if (revokedTokens.isRevoked(validated.jti())) {
+            rejectedTokens.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private record ValidatedToken(String jti, String subject, Instant expiresAt) {
+    }
+
+    private static class UnknownKeyException extends JwtException {
+        UnknownKeyException(String kid) {
+            super("No verification key with kid " + kid);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.pm.apigateway.jwt;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Local copy of auth-service's revocation list (GET /revocations), refreshed in the background so checking a
+// token is one map lookup on the request path. A revocation takes effect in the gateway within one refresh
+// interval; if auth-service cannot be reached the previous copy is kept
+@Component
+public class RevokedTokens {
+
+    private static final Logger log = LoggerFactory.getLogger(RevokedTokens.class);
+
+    private final WebClient webClient;
+    private final Duration requestTimeout;
+    // jti -> expiry of the revoked token
+    private volatile Map<String, Instant> revoked = Map.of();
+
+    public RevokedTokens(WebClient.Builder webClientBuilder,
+                         @Value("${auth.service.url}") String authServiceUrl,
+                         @Value("${jwt.revocation.request-timeout:2s}") Duration requestTimeout) {
+        this.webClient = webClientBuilder.baseUrl(authServiceUrl).build();
+        this.requestTimeout = requestTimeout;
+    }
+
+    public boolean isRevoked(String jti) {
+        return jti != null && revoked.containsKey(jti);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-interval-ms:10000}")
+    public void refresh() {
+        webClient.get()
+                .uri("/revocations")
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<List<RevokedToken>>() {})
+                .timeout(requestTimeout)
+                .subscribe(
+                        tokens -> revoked = tokens.stream()
+                                .collect(Collectors.toUnmodifiableMap(RevokedToken::jti, RevokedToken::expiresAt,
+                                        (a, b) -> a)),
+                        e -> log.warn("Could not refresh revoked tokens from auth-service: {}", e.getMessage()));
+    }
+
+    record RevokedToken(String jti, Instant expiresAt) {
+    }
+}
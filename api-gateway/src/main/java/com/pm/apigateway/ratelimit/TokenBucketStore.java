@@ -0,0 +1,87 @@
+package com.pm.apigateway.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// In-memory token buckets, one per client key (a user or an IP address). Keys are spread over a fixed number
+// of stripes, each with its own lock and its own LRU-bounded map, so requests from different clients rarely
+// contend and the store cannot grow without bound. The buckets live in this gateway instance only: with N
+// instances behind the load balancer a client can get up to N times the configured rate
+@Component
+public class TokenBucketStore {
+
+    private final Stripe[] stripes;
+
+    public TokenBucketStore(@Value("${gateway.rate-limit.stripes:64}") int stripes,
+                            // total number of clients tracked; the least recently seen bucket is dropped first
+                            @Value("${gateway.rate-limit.max-keys:100000}") int maxKeys) {
+        // a power of two so a stripe is picked with a mask
+        int count = Integer.highestOneBit(Math.max(1, stripes));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe(Math.max(1, maxKeys / count));
+        }
+    }
+
+    // Takes one token from the key's bucket. A new or evicted key starts with a full bucket
+    public Probe tryConsume(String key, long capacity, double refillPerSecond) {
+        int hash = key.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+        long now = System.nanoTime();
+
+        synchronized (stripe) {
+            Bucket bucket = stripe.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(capacity, now);
+                stripe.put(key, bucket);
+            }
+            return bucket.tryConsume(capacity, refillPerSecond, now);
+        }
+    }
+
+    // nanosToRefill is how long until the next token is available, 0 when the request was allowed
+    public record Probe(boolean allowed, long remaining, long nanosToRefill) {
+    }
+
+    private static final class Bucket {
+
+        private double tokens;
+        private long refilledAtNanos;
+
+        Bucket(long capacity, long now) {
+            this.tokens = capacity;
+            this.refilledAtNanos = now;
+        }
+
+        Probe tryConsume(long capacity, double refillPerSecond, long now) {
+            // refill lazily for the time passed since the last request, no timer per bucket
+            tokens = Math.min(capacity, tokens + (now - refilledAtNanos) * refillPerSecond / 1_000_000_000);
+            refilledAtNanos = now;
+
+            if (tokens >= 1) {
+                tokens -= 1;
+                return new Probe(true, (long) tokens, 0);
+            }
+            return new Probe(false, 0, (long) Math.ceil((1 - tokens) / refillPerSecond * 1_000_000_000));
+        }
+    }
+
+    // access-ordered, so the eldest entry is the client seen least recently; only used under its own lock
+    private static final class Stripe extends LinkedHashMap<String, Bucket> {
+
+        private final int maxKeys;
+
+        Stripe(int maxKeys) {
+            super(16, 0.75f, true);
+            this.maxKeys = maxKeys;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            return size() > maxKeys;
+        }
+    }
+}
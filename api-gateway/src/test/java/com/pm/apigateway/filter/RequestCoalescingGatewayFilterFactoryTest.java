@@ -0,0 +1,147 @@
+package com.pm.apigateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestCoalescingGatewayFilterFactoryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private GatewayFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RequestCoalescingGatewayFilterFactory(meterRegistry).apply(new Object());
+    }
+
+    @Test
+    void followerGetsTheLeaderResponseWithoutGoingDownstream() {
+        Sinks.Empty<Void> release = Sinks.empty();
+        MockServerWebExchange leader = get("/api/patients/all");
+        MockServerWebExchange follower = get("/api/patients/all");
+        AtomicInteger downstreamCalls = new AtomicInteger();
+
+        Disposable leaderRun = filter.filter(leader, respondAfter(release, downstreamCalls, "patients")).subscribe();
+        Disposable followerRun = filter.filter(follower, respondAfter(Sinks.empty(), downstreamCalls, "other"))
+                .subscribe();
+        release.tryEmitEmpty();
+
+        assertTrue(leaderRun.isDisposed());
+        assertTrue(followerRun.isDisposed());
+        assertEquals(1, downstreamCalls.get());
+        assertEquals(HttpStatus.OK, follower.getResponse().getStatusCode());
+        assertEquals("patients", body(follower.getResponse()));
+        assertEquals(8, follower.getResponse().getHeaders().getContentLength());
+        assertEquals(1.0, count("follower"));
+    }
+
+    @Test
+    void followerGoesDownstreamWhenTheLeaderHasNothingToShare() {
+        Sinks.Empty<Void> release = Sinks.empty();
+        MockServerWebExchange leader = get("/api/patients/all");
+        MockServerWebExchange follower = get("/api/patients/all");
+        AtomicInteger followerCalls = new AtomicInteger();
+
+        // the leader fails before writing a response
+        filter.filter(leader, exchange -> release.asMono().then(Mono.error(new IllegalStateException("down"))))
+                .subscribe(done -> { }, error -> { });
+        filter.filter(follower, respondAfter(Sinks.empty(), followerCalls, "fresh", true)).subscribe();
+        release.tryEmitEmpty();
+
+        assertEquals(1, followerCalls.get());
+        assertEquals("fresh", body(follower.getResponse()));
+    }
+
+    @Test
+    void requestAfterTheLeaderFinishedStartsANewCall() {
+        AtomicInteger downstreamCalls = new AtomicInteger();
+
+        filter.filter(get("/api/patients/all"), respondAfter(Sinks.empty(), downstreamCalls, "first", true)).block();
+        MockServerWebExchange later = get("/api/patients/all");
+        filter.filter(later, respondAfter(Sinks.empty(), downstreamCalls, "second", true)).block();
+
+        assertEquals(2, downstreamCalls.get());
+        assertEquals("second", body(later.getResponse()));
+        assertEquals(2.0, count("leader"));
+    }
+
+    @Test
+    void conditionalRequestsDoNotShareWithUnconditionalOnes() {
+        Sinks.Empty<Void> release = Sinks.empty();
+        AtomicInteger downstreamCalls = new AtomicInteger();
+        MockServerWebExchange conditional = MockServerWebExchange.from(MockServerHttpRequest.get("/api/patients/all")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"v1\""));
+        MockServerWebExchange plain = get("/api/patients/all");
+
+        filter.filter(conditional, respondAfter(release, downstreamCalls, "conditional")).subscribe();
+        filter.filter(plain, respondAfter(Sinks.empty(), downstreamCalls, "plain", true)).block();
+        release.tryEmitEmpty();
+
+        assertEquals(2, downstreamCalls.get());
+        assertEquals("plain", body(plain.getResponse()));
+    }
+
+    @Test
+    void nonGetRequestsAreNotCoalesced() {
+        Sinks.Empty<Void> release = Sinks.empty();
+        AtomicInteger downstreamCalls = new AtomicInteger();
+
+        filter.filter(post(), respondAfter(release, downstreamCalls, "first")).subscribe();
+        filter.filter(post(), respondAfter(Sinks.empty(), downstreamCalls, "second", true)).block();
+        release.tryEmitEmpty();
+
+        assertEquals(2, downstreamCalls.get());
+        assertEquals(0.0, count("leader"));
+    }
+
+    private static GatewayFilterChain respondAfter(Sinks.Empty<Void> release, AtomicInteger calls, String body) {
+        return respondAfter(release, calls, body, false);
+    }
+
+    // answers 200 with body once release completes, or right away when immediate
+    private static GatewayFilterChain respondAfter(Sinks.Empty<Void> release, AtomicInteger calls, String body,
+                                                   boolean immediate) {
+        return exchange -> {
+            calls.incrementAndGet();
+            Mono<Void> write = Mono.defer(() -> {
+                exchange.getResponse().setStatusCode(HttpStatus.OK);
+                return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory()
+                        .wrap(body.getBytes(StandardCharsets.UTF_8))));
+            });
+            return immediate ? write : release.asMono().then(write);
+        };
+    }
+
+    private static MockServerWebExchange get(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+
+    private static MockServerWebExchange post() {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/api/patients"));
+    }
+
+    private static String body(MockServerHttpResponse response) {
+        return response.getBodyAsString().block();
+    }
+
+    private double count(String role) {
+        return meterRegistry.get("gateway.coalescing.requests").tag("role", role).counter().count();
+    }
+}
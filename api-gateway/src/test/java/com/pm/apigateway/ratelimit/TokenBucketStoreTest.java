@@ -0,0 +1,85 @@
+package com.pm.apigateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketStoreTest {
+
+    @Test
+    void newKeyStartsWithAFullBucket() {
+        TokenBucketStore store = new TokenBucketStore(1, 10);
+
+        TokenBucketStore.Probe first = store.tryConsume("client", 3, 0.001);
+        TokenBucketStore.Probe second = store.tryConsume("client", 3, 0.001);
+        TokenBucketStore.Probe third = store.tryConsume("client", 3, 0.001);
+
+        assertTrue(first.allowed());
+        assertEquals(2, first.remaining());
+        assertEquals(1, second.remaining());
+        assertEquals(0, third.remaining());
+        assertEquals(0, third.nanosToRefill());
+    }
+
+    @Test
+    void emptyBucketReportsTimeToNextToken() {
+        TokenBucketStore store = new TokenBucketStore(1, 10);
+        store.tryConsume("client", 1, 1);
+
+        TokenBucketStore.Probe denied = store.tryConsume("client", 1, 1);
+
+        assertFalse(denied.allowed());
+        assertEquals(0, denied.remaining());
+        // one token a second, and a little of it has already refilled
+        assertTrue(denied.nanosToRefill() > 0);
+        assertTrue(denied.nanosToRefill() <= 1_000_000_000);
+    }
+
+    @Test
+    void bucketRefillsWithElapsedTime() throws InterruptedException {
+        TokenBucketStore store = new TokenBucketStore(1, 10);
+        store.tryConsume("client", 1, 1000);
+        assertFalse(store.tryConsume("client", 1, 1000).allowed());
+
+        // a token every millisecond
+        Thread.sleep(20);
+
+        assertTrue(store.tryConsume("client", 1, 1000).allowed());
+    }
+
+    @Test
+    void refillIsCappedAtCapacity() throws InterruptedException {
+        TokenBucketStore store = new TokenBucketStore(1, 10);
+        store.tryConsume("client", 2, 1000);
+
+        Thread.sleep(20);
+
+        assertEquals(1, store.tryConsume("client", 2, 1000).remaining());
+    }
+
+    @Test
+    void keysHaveSeparateBuckets() {
+        TokenBucketStore store = new TokenBucketStore(4, 100);
+        store.tryConsume("a", 1, 0.001);
+
+        assertFalse(store.tryConsume("a", 1, 0.001).allowed());
+        assertTrue(store.tryConsume("b", 1, 0.001).allowed());
+    }
+
+    @Test
+    void leastRecentlySeenKeyIsEvictedFirst() {
+        TokenBucketStore store = new TokenBucketStore(1, 2);
+        store.tryConsume("a", 1, 0.001);
+        store.tryConsume("b", 1, 0.001);
+        // touching a leaves b as the eldest entry
+        store.tryConsume("a", 1, 0.001);
+
+        store.tryConsume("c", 1, 0.001);
+
+        // b was dropped and starts over with a full bucket, c was kept and is still empty
+        assertTrue(store.tryConsume("b", 1, 0.001).allowed());
+        assertFalse(store.tryConsume("c", 1, 0.001).allowed());
+    }
+}
@@ -2,6 +2,8 @@ package com.pm.authservice.controller;
 
 import com.pm.authservice.dto.LoginRequestDTO;
 import com.pm.authservice.dto.LoginResponseDTO;
+import com.pm.authservice.dto.RefreshRequestDTO;
+import com.pm.authservice.dto.RevokedTokenDTO;
 import com.pm.authservice.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
 import org.springframework.http.HttpStatus;
@@ -9,6 +11,7 @@ import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -24,15 +27,47 @@ public class AuthController {
     @PostMapping("/login")
     public ResponseEntity<LoginResponseDTO> login(@RequestBody LoginRequestDTO loginRequestDTO){
 
-        Optional<String> tokenOptional = authService.authenticate(loginRequestDTO);
+        Optional<LoginResponseDTO> tokensOptional = authService.authenticate(loginRequestDTO);
 
         // Empty token could be sent if authorization fails
-        if(tokenOptional.isEmpty()){
+        if(tokensOptional.isEmpty()){
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        String token = tokenOptional.get();
-        return ResponseEntity.ok(new LoginResponseDTO(token));
+        return ResponseEntity.ok(tokensOptional.get());
+    }
+
+    // Access tokens are short-lived; a client renews them here instead of logging in again
+    @Operation(summary = "Exchange a refresh token for a new access token and refresh token")
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponseDTO> refresh(@RequestBody RefreshRequestDTO refreshRequestDTO){
+        if(refreshRequestDTO.getRefreshToken() == null || refreshRequestDTO.getRefreshToken().isBlank()){
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        return authService.refresh(refreshRequestDTO.getRefreshToken())
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+    }
+
+    @Operation(summary = "Revoke the access token and, if given, the refresh token")
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader("Authorization") String authHeader,
+                                       @RequestBody(required = false) RefreshRequestDTO refreshRequestDTO){
+        if(authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        authService.logout(authHeader.substring(7),
+                refreshRequestDTO == null ? null : refreshRequestDTO.getRefreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
+    // Polled by the api-gateway, which verifies tokens itself and only needs to know which ones were revoked
+    @Operation(summary = "List revoked access tokens that have not expired yet")
+    @GetMapping("/revocations")
+    public ResponseEntity<List<RevokedTokenDTO>> revocations(){
+        return ResponseEntity.ok(authService.revokedTokens());
     }
 
     @Operation(summary = "Validate Token")
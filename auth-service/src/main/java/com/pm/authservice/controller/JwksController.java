@@ -0,0 +1,33 @@
+package com.pm.authservice.controller;
+
+import com.pm.authservice.util.JwtSigningKeys;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+@RestController
+public class JwksController {
+
+    private final JwtSigningKeys signingKeys;
+
+    public JwksController(JwtSigningKeys signingKeys){
+        this.signingKeys = signingKeys;
+    }
+
+    // Public keys for verifying access tokens offline. Verifiers cache this and only refetch on a schedule
+    // or when a token names a kid they do not know
+    @Operation(summary = "JSON Web Key Set with the token verification keys")
+    @GetMapping(path = "/.well-known/jwks.json", produces = {"application/jwk-set+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Map<String, Object>> jwks(){
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+                .body(signingKeys.jwkSet());
+    }
+
+}
@@ -3,14 +3,26 @@ package com.pm.authservice.dto;
 public class LoginResponseDTO {
 
     private final String token;
+    private final String refreshToken;
+    // lifetime of token in seconds
+    private final long expiresIn;
 
-    public LoginResponseDTO(String token) {
+    public LoginResponseDTO(String token, String refreshToken, long expiresIn) {
         this.token = token;
-
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
     }
 
     public String getToken() {
         return token;
     }
 
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+
 }
@@ -0,0 +1,15 @@
+package com.pm.authservice.dto;
+
+public class RefreshRequestDTO {
+
+    private String refreshToken;
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+}
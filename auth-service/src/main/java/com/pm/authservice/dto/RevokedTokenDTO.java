@@ -0,0 +1,23 @@
+package com.pm.authservice.dto;
+
+import java.time.Instant;
+
+public class RevokedTokenDTO {
+
+    private final String jti;
+    private final Instant expiresAt;
+
+    public RevokedTokenDTO(String jti, Instant expiresAt) {
+        this.jti = jti;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getJti() {
+        return jti;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.pm.authservice.exception;
+
+public class LoginThrottledException extends RuntimeException {
+    public LoginThrottledException(String message) {
+        super(message);
+    }
+}
@@ -1,46 +1,110 @@
 package com.pm.authservice.service;
 
 import com.pm.authservice.dto.LoginRequestDTO;
+import com.pm.authservice.dto.LoginResponseDTO;
+import com.pm.authservice.dto.RevokedTokenDTO;
 import com.pm.authservice.model.User;
 import com.pm.authservice.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import javax.swing.text.html.Option;
+import java.util.List;
 import java.util.Optional;
 
 @Service
 public class AuthService {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
+
     // Dependency injection
     private final UserService userService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtUtil jwtUtil;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationList tokenRevocationList;
 
     // Spring Boot will take care of injecting a userService instance
-    public AuthService(UserService userService, PasswordEncoder passwordEncoder, JwtUtil jwtUtil){
+    public AuthService(UserService userService, PasswordHashingService passwordHashingService, JwtUtil jwtUtil,
+                       RefreshTokenService refreshTokenService, TokenRevocationList tokenRevocationList){
         this.userService = userService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.jwtUtil = jwtUtil;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationList = tokenRevocationList;
     }
 
-    public Optional<String> authenticate(LoginRequestDTO loginRequestDTO){
-        Optional<String> token = userService
+    public Optional<LoginResponseDTO> authenticate(LoginRequestDTO loginRequestDTO){
+        Optional<LoginResponseDTO> tokens = userService
                 .findByEmail(loginRequestDTO.getEmail())
-                .filter(u -> passwordEncoder.matches(loginRequestDTO.getPassword(), u.getPassword())) // encode password put in by user and match it with password in DB
-                .map(u -> jwtUtil.generateToken(u.getEmail(), u.getRole()));
+                .filter(u -> passwordHashingService.matches(loginRequestDTO.getPassword(), u.getPassword())) // encode password put in by user and match it with password in DB
+                .map(u -> {
+                    rehashIfOutdated(u, loginRequestDTO.getPassword());
+                    return issueTokens(u);
+                });
+
+        return tokens;
+    }
+
+    // Swaps a refresh token for a new access token and a new refresh token; the presented one is used up
+    public Optional<LoginResponseDTO> refresh(String refreshToken){
+        return refreshTokenService.consume(refreshToken)
+                .flatMap(userService::findById)
+                .map(this::issueTokens);
+    }
+
+    // Revokes the access token for the rest of its lifetime and, if given, the refresh token
+    public void logout(String accessToken, String refreshToken){
+        try{
+            Claims claims = jwtUtil.validateToken(accessToken);
+            tokenRevocationList.revoke(claims.getId(), claims.getExpiration().toInstant());
+        } catch(JwtException e){
+            // an invalid or expired access token needs no revoking
+        }
 
-        return token;
+        if(refreshToken != null && !refreshToken.isBlank()){
+            refreshTokenService.revoke(refreshToken);
+        }
     }
 
     public boolean validateToken(String token){
         try{
-            jwtUtil.validateToken(token);
-            return true;
+            Claims claims = jwtUtil.validateToken(token);
+            return !tokenRevocationList.isRevoked(claims.getId());
         } catch(JwtException e){
             return false;
         }
     }
 
+    public List<RevokedTokenDTO> revokedTokens(){
+        return tokenRevocationList.snapshot().entrySet().stream()
+                .map(entry -> new RevokedTokenDTO(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    private LoginResponseDTO issueTokens(User user){
+        return new LoginResponseDTO(
+                jwtUtil.generateToken(user.getEmail(), user.getRole()),
+                refreshTokenService.issue(user.getId()),
+                jwtUtil.getAccessTokenTtl().toSeconds());
+    }
+
+    // The plain password is only known during a login, so that is when a hash written with an older algorithm
+    // or cost is upgraded. It happens in the background and does not delay the token
+    private void rehashIfOutdated(User user, String rawPassword){
+        if (!passwordHashingService.needsRehash(user.getPassword())) {
+            return;
+        }
+
+        passwordHashingService.encodeInBackground(rawPassword).whenComplete((newPassword, t) -> {
+            if (t != null) {
+                log.warn("Skipped password rehash for user {}: {}", user.getId(), t.getMessage());
+            } else {
+                userService.updatePassword(user, newPassword);
+            }
+        });
+    }
+
 }
@@ -0,0 +1,74 @@
+package com.pm.authservice.service;
+
+import com.pm.authservice.model.RefreshToken;
+import com.pm.authservice.repository.RefreshTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+// Long-lived opaque refresh tokens. They are only used on the cold /refresh path, so unlike access tokens they
+// are checked against the database, and every use rotates them: the presented token is deleted and a new one
+// issued, so a stolen refresh token stops working as soon as either party uses it
+@Service
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final Duration refreshTokenTtl;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${jwt.refresh-token.ttl:7d}") Duration refreshTokenTtl) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshTokenTtl = refreshTokenTtl;
+    }
+
+    public String issue(UUID userId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(token));
+        refreshToken.setUserId(userId);
+        refreshToken.setExpiresAt(Instant.now().plus(refreshTokenTtl));
+        refreshTokenRepository.save(refreshToken);
+        return token;
+    }
+
+    // Returns the user the token belongs to and invalidates it, or empty when it is unknown, expired or used
+    public Optional<UUID> consume(String token) {
+        String tokenHash = hash(token);
+        return refreshTokenRepository.findUserIdByTokenHash(tokenHash)
+                .filter(userId -> refreshTokenRepository.deleteValid(tokenHash, Instant.now()) == 1);
+    }
+
+    public void revoke(String token) {
+        refreshTokenRepository.deleteValid(hash(token), Instant.now());
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-token.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        refreshTokenRepository.deleteExpired(Instant.now());
+    }
+
+    private static String hash(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.pm.authservice.service;
+
+import com.pm.authservice.model.RevokedToken;
+import com.pm.authservice.repository.RevokedTokenRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// jti -> expiry of every access token revoked before it expired. Checks are a single map lookup with no
+// database call; the database only makes revocations durable and shared between auth-service instances,
+// which pick up each other's entries on the next sync. Entries are swept once their token has expired, so
+// with short-lived access tokens the set stays small
+@Service
+public class TokenRevocationList {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+
+    public TokenRevocationList(RevokedTokenRepository revokedTokenRepository) {
+        this.revokedTokenRepository = revokedTokenRepository;
+    }
+
+    public void revoke(String jti, Instant expiresAt) {
+        if (!expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setJti(jti);
+        revokedToken.setExpiresAt(expiresAt);
+        revokedTokenRepository.save(revokedToken);
+        revoked.put(jti, expiresAt);
+    }
+
+    public boolean isRevoked(String jti) {
+        return jti != null && revoked.containsKey(jti);
+    }
+
+    // unexpired revocations, served to the gateway so it can reject them without asking auth-service
+    public Map<String, Instant> snapshot() {
+        return Map.copyOf(revoked);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:10000}")
+    public void sync() {
+        Instant now = Instant.now();
+        List<RevokedToken> current = revokedTokenRepository.findByExpiresAtAfter(now);
+        current.forEach(revokedToken -> revoked.put(revokedToken.getJti(), revokedToken.getExpiresAt()));
+
+        revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+        revokedTokenRepository.deleteExpired(now);
+    }
+}
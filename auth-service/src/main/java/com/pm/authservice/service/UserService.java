@@ -1,22 +1,61 @@
 package com.pm.authservice.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.pm.authservice.model.User;
 import com.pm.authservice.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Optional;
+import java.util.UUID;
 
 @Service
 public class UserService {
 
     private final UserRepository userRepository;
 
-    public UserService(UserRepository userRepository){
+    // email -> user, so repeated logins skip the database. Only users that exist are cached, and the TTL bounds
+    // how long a password or role changed by another instance can be served stale
+    private final Cache<String, User> usersByEmail;
+
+    public UserService(UserRepository userRepository,
+                       @Value("${auth.user.cache.max-size:10000}") long cacheMaxSize,
+                       @Value("${auth.user.cache.ttl:5m}") Duration cacheTtl){
         this.userRepository = userRepository;
+        this.usersByEmail = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
     }
 
     public Optional<User> findByEmail(String email){
-        return userRepository.findByEmail(email);
+        User cached = usersByEmail.getIfPresent(email);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<User> user = userRepository.findByEmail(email);
+        user.ifPresent(u -> usersByEmail.put(email, u));
+        return user;
+    }
+
+    public Optional<User> findById(UUID id){
+        return userRepository.findById(id);
+    }
+
+    public void updatePassword(User user, String newPassword){
+        if (userRepository.updatePassword(user.getId(), user.getPassword(), newPassword) > 0) {
+            User updated = new User();
+            updated.setId(user.getId());
+            updated.setEmail(user.getEmail());
+            updated.setPassword(newPassword);
+            updated.setRole(user.getRole());
+            usersByEmail.put(user.getEmail(), updated);
+        } else {
+            usersByEmail.invalidate(user.getEmail());
+        }
     }
 
 }
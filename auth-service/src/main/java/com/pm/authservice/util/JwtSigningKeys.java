@@ -0,0 +1,161 @@
+package com.pm.authservice.util;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Asymmetric keys for access tokens. The current private key signs, and every public key, including extra
+// ones listed in jwt.signing.additional-public-keys, is published at /.well-known/jwks.json so verifiers
+// pick a key by the token's "kid" header. Rotation without rejecting live tokens:
+//   1. list the new public key as an additional key and wait for verifiers to refresh their key sets
+//   2. make the new key the signing key and list the old public key as additional
+//   3. drop the old key once the longest access token lifetime has passed
+// Without jwt.signing.private-key a key pair is generated at startup; tokens then only verify until restart
+// and multiple instances do not share a key, so configure a key wherever more than one instance runs
+@Component
+public class JwtSigningKeys {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtSigningKeys.class);
+
+    private final String keyId;
+    private final PrivateKey signingKey;
+    private final SignatureAlgorithm algorithm;
+    // kid -> public key, the signing key's own public key included
+    private final Map<String, PublicKey> verificationKeys = new LinkedHashMap<>();
+    private final List<Map<String, Object>> jwks = new ArrayList<>();
+
+    public JwtSigningKeys(@Value("${jwt.signing.algorithm:ES256}") String algorithmId,
+                          // Base64 DER, PKCS#8
+                          @Value("${jwt.signing.private-key:}") String privateKey,
+                          @Value("${jwt.signing.key-id:}") String keyId,
+                          // kid:Base64 DER X.509 pairs, comma separated
+                          @Value("${jwt.signing.additional-public-keys:}") List<String> additionalPublicKeys) {
+        // HS* are MAC algorithms and EdDSA keys cannot be decoded below, only RSA and EC algorithms qualify
+        if (!(Jwts.SIG.get().get(algorithmId) instanceof SignatureAlgorithm signatureAlgorithm)
+                || algorithmId.equals("EdDSA")) {
+            throw new IllegalArgumentException("jwt.signing.algorithm must be an RSA or EC algorithm, not " + algorithmId);
+        }
+        this.algorithm = signatureAlgorithm;
+
+        KeyPair keyPair;
+        if (privateKey.isBlank()) {
+            log.warn("jwt.signing.private-key is not set, signing with a key generated for this run only");
+            keyPair = algorithm.keyPair().build();
+        } else {
+            PrivateKey configured = decodePrivateKey(privateKey);
+            keyPair = new KeyPair(derivePublicKey(configured), configured);
+        }
+
+        this.signingKey = keyPair.getPrivate();
+        this.keyId = addVerificationKey(keyId.isBlank() ? null : keyId, keyPair.getPublic());
+
+        for (String entry : additionalPublicKeys) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] kidAndKey = entry.trim().split(":", 2);
+            if (kidAndKey.length != 2) {
+                throw new IllegalArgumentException("jwt.signing.additional-public-keys entries must be kid:key");
+            }
+            addVerificationKey(kidAndKey[0], decodePublicKey(kidAndKey[1]));
+        }
+    }
+
+    public static JwtSigningKeys generate(String algorithmId) {
+        return new JwtSigningKeys(algorithmId, "", "", List.of());
+    }
+
+    public String keyId() {
+        return keyId;
+    }
+
+    public PrivateKey signingKey() {
+        return signingKey;
+    }
+
+    public SignatureAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    public Key verificationKey(String kid) {
+        return kid == null ? null : verificationKeys.get(kid);
+    }
+
+    // JWK Set document (RFC 7517) with the public keys only
+    public Map<String, Object> jwkSet() {
+        return Map.of("keys", jwks);
+    }
+
+    private String addVerificationKey(String kid, PublicKey publicKey) {
+        var builder = Jwks.builder().key(publicKey).publicKeyUse("sig");
+        PublicJwk<?> jwk = kid == null
+                ? builder.idFromThumbprint().build()
+                : builder.id(kid).build();
+
+        verificationKeys.put(jwk.getId(), publicKey);
+        jwks.add(new LinkedHashMap<>(jwk));
+        return jwk.getId();
+    }
+
+    private static PrivateKey decodePrivateKey(String base64) {
+        byte[] der = Base64.getDecoder().decode(base64.trim());
+        for (String type : List.of("EC", "RSA")) {
+            try {
+                return KeyFactory.getInstance(type).generatePrivate(new PKCS8EncodedKeySpec(der));
+            } catch (GeneralSecurityException e) {
+                // try the next key type
+            }
+        }
+        throw new IllegalArgumentException("jwt.signing.private-key is not a PKCS#8 EC or RSA key");
+    }
+
+    private static PublicKey decodePublicKey(String base64) {
+        byte[] der = Base64.getDecoder().decode(base64.trim());
+        for (String type : List.of("EC", "RSA")) {
+            try {
+                return KeyFactory.getInstance(type).generatePublic(new X509EncodedKeySpec(der));
+            } catch (GeneralSecurityException e) {
+                // try the next key type
+            }
+        }
+        throw new IllegalArgumentException("Additional public key is not an X.509 EC or RSA key");
+    }
+
+    private static PublicKey derivePublicKey(PrivateKey privateKey) {
+        try {
+            if (privateKey instanceof RSAPrivateCrtKey rsa) {
+                return KeyFactory.getInstance("RSA")
+                        .generatePublic(new RSAPublicKeySpec(rsa.getModulus(), rsa.getPublicExponent()));
+            }
+            if (privateKey instanceof ECPrivateKey ec) {
+                // jjwt derives the EC public point from the private key
+                return Jwks.builder().key(ec).build().toPublicJwk().toKey();
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Could not derive the public key of jwt.signing.private-key", e);
+        }
+        throw new IllegalArgumentException("jwt.signing.private-key must be an RSA or EC key");
+    }
+}
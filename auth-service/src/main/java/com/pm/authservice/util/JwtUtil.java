@@ -1,47 +1,60 @@
 package com.pm.authservice.util;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.ProtectedHeader;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
-import java.security.Key;
-import java.security.Signature;
-import java.security.SignatureException;
-import java.util.Base64;
+import java.time.Duration;
 import java.util.Date;
+import java.util.UUID;
 
 // Using component annotations creates a bean of this class to be injected later
 @Component
 public class JwtUtil {
 
-    private final Key secretKey;
-
-    public JwtUtil(@Value("${jwt.secret}") String secret){
-        byte[] keyBytes = Base64.getDecoder().decode(secret.getBytes(StandardCharsets.UTF_8));
-        this.secretKey = Keys.hmacShaKeyFor(keyBytes);
+    private final JwtSigningKeys signingKeys;
+    private final JwtParser jwtParser;
+    private final Duration accessTokenTtl;
+
+    public JwtUtil(JwtSigningKeys signingKeys,
+                   @Value("${jwt.access-token.ttl:15m}") Duration accessTokenTtl){
+        this.signingKeys = signingKeys;
+        // the kid header selects the public key, so tokens signed before a key rotation keep verifying
+        this.jwtParser = Jwts.parser()
+                .keyLocator(header -> header instanceof ProtectedHeader protectedHeader
+                        ? signingKeys.verificationKey(protectedHeader.getKeyId())
+                        : null)
+                .build();
+        this.accessTokenTtl = accessTokenTtl;
     }
 
+    // Access tokens are short-lived, clients renew them with a refresh token. The jti identifies the
+    // token on the revocation list, which then only has to remember it until the token expires anyway
     public String generateToken(String email, String role){
 
         return Jwts.builder()
+                .header().keyId(signingKeys.keyId()).and()
+                .id(UUID.randomUUID().toString())
                 .subject(email)
                 .claim("role", role)
                 .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 10)) // 10 hours
-                .signWith(secretKey)
+                .expiration(new Date(System.currentTimeMillis() + accessTokenTtl.toMillis()))
+                .signWith(signingKeys.signingKey(), signingKeys.algorithm())
                 .compact();
     }
 
-    public void validateToken(String token){
+    public Duration getAccessTokenTtl() {
+        return accessTokenTtl;
+    }
+
+    public Claims validateToken(String token){
         try {
-            Jwts.parser().verifyWith((SecretKey) secretKey)
-                    .build()
-                    .parseSignedClaims(token);
-        } catch(JwtException e){
+            return jwtParser.parseSignedClaims(token).getPayload();
+        } catch(JwtException | IllegalArgumentException e){
             throw new JwtException("Invalid JWT");
         }
     }
@@ -0,0 +1,83 @@
+package com.pm.benchmarks;
+
+import com.pm.authservice.dto.LoginRequestDTO;
+import com.pm.authservice.dto.LoginResponseDTO;
+import com.pm.authservice.model.User;
+import com.pm.authservice.service.AuthService;
+import com.pm.authservice.service.PasswordHashingService;
+import com.pm.authservice.service.RefreshTokenService;
+import com.pm.authservice.service.TokenRevocationList;
+import com.pm.authservice.service.UserService;
+import com.pm.authservice.util.JwtSigningKeys;
+import com.pm.authservice.util.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// A full AuthService.authenticate (lookup, BCrypt match, token generation) with the user lookup served
+// from memory, so the numbers show the CPU cost of a login at different BCrypt work factors
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class AuthServiceBenchmark {
+
+    // 10 is the BCryptPasswordEncoder default used by auth-service
+    @Param({"4", "10", "12"})
+    public int bcryptStrength;
+
+    private PasswordHashingService passwordHashingService;
+    private AuthService authService;
+    private LoginRequestDTO loginRequestDTO;
+
+    @Setup
+    public void setUp() {
+        BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(bcryptStrength);
+
+        User user = new User();
+        user.setEmail("testuser@test.com");
+        user.setPassword(passwordEncoder.encode("password123"));
+        user.setRole("ADMIN");
+
+        UserService userService = new UserService(null, 1, Duration.ofMinutes(5)) {
+            @Override
+            public Optional<User> findByEmail(String email) {
+                return Optional.of(user);
+            }
+        };
+
+        // one hashing thread per benchmark thread, as auth-service sizes the pool to the CPUs
+        passwordHashingService = new PasswordHashingService(passwordEncoder, 1, 100, Duration.ofSeconds(30));
+        // refresh tokens are persisted in auth-service, here only the random token generation is kept
+        RefreshTokenService refreshTokenService = new RefreshTokenService(null, Duration.ofDays(7)) {
+            @Override
+            public String issue(UUID userId) {
+                return UUID.randomUUID().toString();
+            }
+        };
+
+        authService = new AuthService(userService, passwordHashingService,
+                new JwtUtil(JwtSigningKeys.generate("ES256"), Duration.ofMinutes(15)),
+                refreshTokenService, new TokenRevocationList(null));
+
+        loginRequestDTO = new LoginRequestDTO();
+        loginRequestDTO.setEmail("testuser@test.com");
+        loginRequestDTO.setPassword("password123");
+    }
+
+    @TearDown
+    public void tearDown() {
+        passwordHashingService.shutdown();
+    }
+
+    @Benchmark
+    public Optional<LoginResponseDTO> authenticate() {
+        return authService.authenticate(loginRequestDTO);
+    }
+}
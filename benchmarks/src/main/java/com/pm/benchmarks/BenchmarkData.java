@@ -0,0 +1,24 @@
+package com.pm.benchmarks;
+
+import com.pm.patientservice.model.Patient;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Fixed sample data shared by the benchmarks, so results stay comparable between runs
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static Patient patient() {
+        Patient patient = new Patient();
+        patient.setId(UUID.fromString("123e4567-e89b-12d3-a456-426614174000"));
+        patient.setName("John Doe");
+        patient.setEmail("john.doe@example.com");
+        patient.setAddress("123 Main St, Springfield");
+        patient.setDateOfBirth(LocalDate.parse("1985-06-15"));
+        patient.setRegisteredDate(LocalDate.parse("2024-01-10"));
+        return patient;
+    }
+}
@@ -0,0 +1,42 @@
+package com.pm.benchmarks;
+
+import com.pm.authservice.util.JwtSigningKeys;
+import com.pm.authservice.util.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Signing and verifying an access token with each supported asymmetric algorithm
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    // ES256 is the auth-service default
+    @Param({"ES256", "RS256"})
+    public String algorithm;
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(JwtSigningKeys.generate(algorithm), Duration.ofMinutes(15));
+        token = jwtUtil.generateToken("testuser@test.com", "ADMIN");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("testuser@test.com", "ADMIN");
+    }
+
+    @Benchmark
+    public String validateToken() {
+        jwtUtil.validateToken(token);
+        return token;
+    }
+}
@@ -0,0 +1,58 @@
+package com.pm.benchmarks;
+
+import com.pm.patientservice.kafka.KafkaProducer;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.Patient;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cost of building and serializing a PatientEvent (a full created event and a one-field update delta),
+// alone and through KafkaProducer.sendEvent
+// with an in-memory MockProducer standing in for the broker
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatientEventBenchmark {
+
+    private Patient patient;
+    private MockProducer<String, byte[]> mockProducer;
+    private KafkaProducer kafkaProducer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        patient = BenchmarkData.patient();
+        mockProducer = new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer());
+        kafkaProducer = new KafkaProducer(new KafkaTemplate<>(new MockProducerFactory<>(() -> mockProducer)));
+    }
+
+    // MockProducer keeps every record it was sent, drop them so memory does not skew later iterations
+    @TearDown(Level.Iteration)
+    public void clearSentRecords() {
+        mockProducer.clear();
+    }
+
+    @Benchmark
+    public byte[] serializeEvent() {
+        return PatientMapper.toPatientCreatedEvent(patient).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serializeUpdateEvent() {
+        return PatientMapper.toPatientUpdatedEvent(patient, List.of(PatientMapper.EMAIL)).toByteArray();
+    }
+
+    @Benchmark
+    public void sendEvent() {
+        kafkaProducer.sendEvent(PatientMapper.toPatientCreatedEvent(patient));
+    }
+}
@@ -0,0 +1,43 @@
+package com.pm.benchmarks;
+
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.Patient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatientMapperBenchmark {
+
+    private Patient patient;
+    private PatientRequestDTO patientRequestDTO;
+
+    @Setup
+    public void setUp() {
+        patient = BenchmarkData.patient();
+
+        patientRequestDTO = new PatientRequestDTO();
+        patientRequestDTO.setName("John Doe");
+        patientRequestDTO.setEmail("john.doe@example.com");
+        patientRequestDTO.setAddress("123 Main St, Springfield");
+        patientRequestDTO.setDateOfBirth("1985-06-15");
+        patientRequestDTO.setRegisteredDate("2024-01-10");
+    }
+
+    @Benchmark
+    public PatientResponseDTO toPatientResponseDTO() {
+        return PatientMapper.toPatientResponseDTO(patient);
+    }
+
+    @Benchmark
+    public Patient toModel() {
+        return PatientMapper.toModel(patientRequestDTO);
+    }
+}
@@ -0,0 +1,112 @@
+package com.pm.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// How long it takes to serve `connections` concurrent requests that each block for blockMillis (standing in
+// for the JDBC and billing gRPC waits of a patient-service request), and what that costs in threads and memory:
+//   platform-pool     Tomcat's default: 200 platform threads, the rest of the requests queue
+//   platform-per-task one platform thread per request, all requests in flight at once
+//   virtual           spring.threads.virtual.enabled=true: one virtual thread per request
+// peakThreads counts platform threads only (virtual threads are not reported by ThreadMXBean), rssMb and
+// heapUsedMb are sampled while the requests are in flight. rssMb is read from /proc and is 0 off Linux
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ThreadModelBenchmark {
+
+    // server.tomcat.threads.max default
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    @Param({"platform-pool", "platform-per-task", "virtual"})
+    public String threadModel;
+
+    @Param({"200", "2000", "10000"})
+    public int connections;
+
+    @Param("20")
+    public int blockMillis;
+
+    private ExecutorService executor;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long peakThreads;
+        public long rssMb;
+        public long heapUsedMb;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = switch (threadModel) {
+            case "platform-pool" -> Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+            case "platform-per-task" -> Executors.newThreadPerTaskExecutor(Thread.ofPlatform().factory());
+            case "virtual" -> Executors.newVirtualThreadPerTaskExecutor();
+            default -> throw new IllegalArgumentException("Unknown thread model " + threadModel);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+    }
+
+    // start every iteration from a collected heap so heapUsedMb reflects the requests in flight
+    @Setup(Level.Invocation)
+    public void collect() {
+        System.gc();
+        THREADS.resetPeakThreadCount();
+    }
+
+    @Benchmark
+    public void serveConnections(Footprint footprint) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(blockMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        Thread.sleep(blockMillis / 2);
+        footprint.rssMb = residentSetMb();
+        footprint.heapUsedMb = MEMORY.getHeapMemoryUsage().getUsed() / (1024 * 1024);
+
+        done.await();
+        footprint.peakThreads = THREADS.getPeakThreadCount();
+    }
+
+    private static long residentSetMb() {
+        try {
+            return Files.readAllLines(Path.of("/proc/self/status")).stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .mapToLong(line -> Long.parseLong(line.replaceAll("\\D", "")) / 1024)
+                    .findFirst()
+                    .orElse(0);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -1,32 +1,101 @@
 package com.pm.billingservice.grpc;
 
+import billing.BatchBillingRequest;
+import billing.BatchBillingResponse;
 import billing.BillingRequest;
 import billing.BillingResponse;
 import billing.BillingServiceGrpc.BillingServiceImplBase;
+import com.pm.billingservice.model.BillingAccount;
+import com.pm.billingservice.service.BillingAccountService;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 @GrpcService
 public class BillingGrpcService extends BillingServiceImplBase {
 
     private static final Logger log = LoggerFactory.getLogger(BillingGrpcService.class);
 
+    private final BillingAccountService billingAccountService;
+
+    public BillingGrpcService(BillingAccountService billingAccountService) {
+        this.billingAccountService = billingAccountService;
+    }
+
     @Override
     public void createBillingAccount(BillingRequest billingRequest,
                                      StreamObserver<BillingResponse> responseObserver) {
 
         log.info("createBillingAccount request received {}", billingRequest.toString());
 
-        // Business logic - e.g save to database, perform calculates etc
+        responseObserver.onNext(toResponse(billingAccountService.createAccount(billingRequest)));
+        responseObserver.onCompleted();
+    }
 
-        BillingResponse response = BillingResponse.newBuilder()
-                .setAccountId("12345")
-                .setStatus("ACTIVE")
-                .build();
+    @Override
+    public void batchCreate(BatchBillingRequest batchRequest,
+                            StreamObserver<BatchBillingResponse> responseObserver) {
+
+        log.info("batchCreate request received for {} accounts", batchRequest.getRequestsCount());
 
-        responseObserver.onNext(response);
+        BatchBillingResponse.Builder response = BatchBillingResponse.newBuilder();
+        for (BillingAccount account : billingAccountService.createAccounts(batchRequest.getRequestsList())) {
+            response.addResponses(toResponse(account));
+        }
+
+        responseObserver.onNext(response.build());
         responseObserver.onCompleted();
     }
-}
\ No newline at end of file
+
+    // Manual flow control: the next request is only pulled from the client once the previous response
+    // could be written, so a fast client cannot make us buffer an unbounded number of responses
+    @Override
+    public StreamObserver<BillingRequest> createBillingAccounts(StreamObserver<BillingResponse> responseObserver) {
+        ServerCallStreamObserver<BillingResponse> serverCallStreamObserver =
+                (ServerCallStreamObserver<BillingResponse>) responseObserver;
+        serverCallStreamObserver.disableAutoRequest();
+
+        AtomicBoolean wasReady = new AtomicBoolean(false);
+        serverCallStreamObserver.setOnReadyHandler(() -> {
+            if (serverCallStreamObserver.isReady() && wasReady.compareAndSet(false, true)) {
+                serverCallStreamObserver.request(1);
+            }
+        });
+
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(BillingRequest billingRequest) {
+                serverCallStreamObserver.onNext(toResponse(billingAccountService.createAccount(billingRequest)));
+
+                if (serverCallStreamObserver.isReady()) {
+                    serverCallStreamObserver.request(1);
+                } else {
+                    // the onReady handler will resume reading once the client has drained our responses
+                    wasReady.set(false);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                log.warn("createBillingAccounts stream cancelled by client: {}", t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                serverCallStreamObserver.onCompleted();
+            }
+        };
+    }
+
+    private static BillingResponse toResponse(BillingAccount account) {
+        return BillingResponse.newBuilder()
+                .setAccountId(account.getId().toString())
+                .setStatus(account.getStatus())
+                .setPatientId(account.getPatientId())
+                .build();
+    }
+}
@@ -0,0 +1,120 @@
+package com.pm.billingservice.service;
+
+import billing.BillingRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pm.billingservice.model.BillingAccount;
+import com.pm.billingservice.repository.BillingAccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Creating an account is idempotent per patientId: patient-service may retry a create after a timeout,
+// and every retry gets back the account that already exists instead of a new one
+@Service
+public class BillingAccountService {
+
+    private static final Logger log = LoggerFactory.getLogger(BillingAccountService.class);
+    private static final String ACTIVE = "ACTIVE";
+
+    private final BillingAccountRepository billingAccountRepository;
+
+    // patientId -> account, so repeated creates for the same patient skip the database entirely
+    private final Cache<String, BillingAccount> accountsByPatientId;
+
+    public BillingAccountService(BillingAccountRepository billingAccountRepository,
+                                 @Value("${billing.account.cache.max-size:100000}") long cacheMaxSize,
+                                 @Value("${billing.account.cache.ttl:30m}") Duration cacheTtl) {
+        this.billingAccountRepository = billingAccountRepository;
+        this.accountsByPatientId = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    public BillingAccount createAccount(BillingRequest billingRequest) {
+        BillingAccount cached = accountsByPatientId.getIfPresent(billingRequest.getPatientId());
+        if (cached != null) {
+            return cached;
+        }
+
+        BillingAccount account = billingAccountRepository.findByPatientId(billingRequest.getPatientId())
+                .orElseGet(() -> insert(billingRequest));
+        accountsByPatientId.put(account.getPatientId(), account);
+        return account;
+    }
+
+    // Returns one account per request, in request order. Existing accounts are found with a single IN
+    // query and the missing ones are inserted together
+    public List<BillingAccount> createAccounts(List<BillingRequest> billingRequests) {
+        Map<String, BillingAccount> accounts = new LinkedHashMap<>();
+        Map<String, BillingRequest> uncached = new LinkedHashMap<>();
+        for (BillingRequest billingRequest : billingRequests) {
+            BillingAccount cached = accountsByPatientId.getIfPresent(billingRequest.getPatientId());
+            if (cached != null) {
+                accounts.put(cached.getPatientId(), cached);
+            } else {
+                uncached.putIfAbsent(billingRequest.getPatientId(), billingRequest);
+            }
+        }
+
+        if (!uncached.isEmpty()) {
+            billingAccountRepository.findByPatientIdIn(uncached.keySet())
+                    .forEach(account -> accounts.put(account.getPatientId(), account));
+
+            List<BillingAccount> missing = uncached.values().stream()
+                    .filter(billingRequest -> !accounts.containsKey(billingRequest.getPatientId()))
+                    .map(BillingAccountService::newAccount)
+                    .toList();
+
+            try {
+                billingAccountRepository.saveAll(missing)
+                        .forEach(account -> accounts.put(account.getPatientId(), account));
+            } catch (DataIntegrityViolationException e) {
+                // another call created some of these in the meantime; fall back to the per-patient path
+                log.warn("Concurrent billing account creation detected, retrying batch one by one");
+                missing.forEach(account -> accounts.put(account.getPatientId(),
+                        createAccount(toRequest(account))));
+            }
+
+            accounts.values().forEach(account -> accountsByPatientId.put(account.getPatientId(), account));
+        }
+
+        return billingRequests.stream()
+                .map(billingRequest -> accounts.get(billingRequest.getPatientId()))
+                .toList();
+    }
+
+    private BillingAccount insert(BillingRequest billingRequest) {
+        try {
+            return billingAccountRepository.saveAndFlush(newAccount(billingRequest));
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent retry for the same patient won the race, its row is the account
+            return billingAccountRepository.findByPatientId(billingRequest.getPatientId())
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private static BillingAccount newAccount(BillingRequest billingRequest) {
+        BillingAccount account = new BillingAccount();
+        account.setPatientId(billingRequest.getPatientId());
+        account.setName(billingRequest.getName());
+        account.setEmail(billingRequest.getEmail());
+        account.setStatus(ACTIVE);
+        account.setCreatedAt(Instant.now());
+        return account;
+    }
+
+    private static BillingRequest toRequest(BillingAccount account) {
+        return BillingRequest.newBuilder().setPatientId(account.getPatientId())
+                .setName(account.getName()).setEmail(account.getEmail()).build();
+    }
+}
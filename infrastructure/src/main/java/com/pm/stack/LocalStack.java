@@ -35,12 +35,19 @@ public class LocalStack extends Stack {
         DatabaseInstance patientServiceDb =
                 createDatabase("PatientServiceDB", "patient-service-db");
 
+        // create billing service db instance
+        DatabaseInstance billingServiceDb =
+                createDatabase("BillingServiceDB", "billing-service-db");
+
         // create auth service db health check
         CfnHealthCheck authDbHealthCheck = createDbHealthCheck(authServiceDb, "AuthServiceDBHealthCheck");
 
         // create patient service db health check
         CfnHealthCheck patientDbHealthCheck = createDbHealthCheck(patientServiceDb, "PatientServiceDbHealthCheck");
 
+        // create billing service db health check
+        CfnHealthCheck billingDbHealthCheck = createDbHealthCheck(billingServiceDb, "BillingServiceDbHealthCheck");
+
         CfnCluster mskCluster = createMskCluster();
 
         this.ecsCluster = createEscCluster();
@@ -49,7 +56,8 @@ public class LocalStack extends Stack {
                 createFargateService("AuthService", "auth-service",
                         List.of(4005),
                         authServiceDb,
-                        Map.of("JWT_SECRET", "Q/EOWCwSG2+eRSiVzoYh7i0vx9C1BBFHgJAxWCzBqMuYh70nX9yjYQE+Z22yYLWn"));
+                        // no JWT_SIGNING_PRIVATE_KEY: the single local auth task signs with a key generated at startup
+                        null);
 
         // below 2 lines tells CDK that authService depends on authDbHeathCheck and authServiceDB
         // it makes aure database starts before the auth service
@@ -59,9 +67,12 @@ public class LocalStack extends Stack {
         FargateService billingService =
                 createFargateService("BillingService", "billing-service",
                         List.of(4001, 9001),
-                        null,
+                        billingServiceDb,
                         null);
 
+        billingService.getNode().addDependency(billingDbHealthCheck);
+        billingService.getNode().addDependency(billingServiceDb);
+
         FargateService analyticsService =
                 createFargateService("AnalyticsService", "analytics-service",
                         List.of(4002),
@@ -217,6 +228,8 @@ public class LocalStack extends Stack {
 
             envVars.put("SPRING_JPA_HIBERNATE_DDL_AUTO", "update");
             envVars.put("SPRING_SQL_INIT_MODE", "always");
+            // also runs the Postgres-only data-postgresql.sql script where a service has one
+            envVars.put("SPRING_SQL_INIT_PLATFORM", "postgresql");
             // try to connect to db for 60 seconds using retries before declaring a failure
             envVars.put("SPRING_DATASOURCE_HIKARI_INITIALIZATION_FAIL_TIMEOUT", "60000");
         }
@@ -246,6 +259,7 @@ public class LocalStack extends Stack {
                 // having this configuration tells cdk to use the prod yaml file
                 .environment(Map.of(
                         "SPRING_PROFILES_ACTIVE", "prod",
+                        // also where the gateway fetches the public keys it verifies tokens with
                         "AUTH_SERVICE_URL", "http://host.docker.internal:4005"
                 ))
                 .portMappings(List.of(4004).stream()
@@ -0,0 +1,38 @@
+package com.pm.loadtests;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histogram and error count for one operation. Recorder is lock-free for the writers, so
+// recording does not add contention between the load-generating threads
+public class EndpointStats {
+
+    // latencies are recorded in microseconds, up to one minute, with 3 significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = 60_000_000L;
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+
+    public void record(long latencyNanos, boolean success) {
+        recorder.recordValue(Math.min(latencyNanos / 1_000, HIGHEST_TRACKABLE_MICROS));
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    // drops everything recorded so far, used to discard the warmup
+    public void reset() {
+        recorder.reset();
+        errors.reset();
+    }
+
+    public Histogram snapshot() {
+        return recorder.getIntervalHistogram();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+}
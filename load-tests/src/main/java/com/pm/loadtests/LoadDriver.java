@@ -0,0 +1,171 @@
+package com.pm.loadtests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Closed-loop load generator: `concurrency` virtual threads each send one request, wait for the answer
+// and immediately send the next, choosing the operation at random according to the configured weights
+public class LoadDriver {
+
+    // ids of patients created during the run, reused round-robin as update targets
+    private static final int KNOWN_PATIENT_SLOTS = 10_000;
+
+    private final LoadTestConfig config;
+    private final String authUrl;
+    private final String patientUrl;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+    private final Operation[] weightedOperations;
+    private final AtomicReferenceArray<String> knownPatientIds = new AtomicReferenceArray<>(KNOWN_PATIENT_SLOTS);
+    private final AtomicLong createdPatients = new AtomicLong();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    public LoadDriver(LoadTestConfig config, String authUrl, String patientUrl) {
+        this.config = config;
+        this.authUrl = authUrl;
+        this.patientUrl = patientUrl;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        List<Operation> operations = new ArrayList<>();
+        config.mix().forEach((operation, weight) -> {
+            stats.put(operation, new EndpointStats());
+            for (int i = 0; i < weight; i++) {
+                operations.add(operation);
+            }
+        });
+        this.weightedOperations = operations.toArray(Operation[]::new);
+        stats.putIfAbsent(Operation.CREATE, new EndpointStats());
+    }
+
+    public Map<Operation, EndpointStats> stats() {
+        return stats;
+    }
+
+    // creates the patients the first update requests will target
+    public void seed() throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.seedPatients(); i++) {
+                executor.submit(() -> execute(Operation.CREATE));
+            }
+        }
+    }
+
+    public void run(Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.concurrency(); i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        Operation operation = weightedOperations[
+                                ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+                        execute(operation);
+                    }
+                });
+            }
+        }
+    }
+
+    private void execute(Operation operation) {
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            success = switch (operation) {
+                case LOGIN -> login();
+                case CREATE -> createPatient();
+                case LIST -> listPatients();
+                case UPDATE -> updatePatient();
+            };
+        } catch (IOException | InterruptedException e) {
+            success = false;
+        }
+        stats.get(operation).record(System.nanoTime() - start, success);
+    }
+
+    private boolean login() throws IOException, InterruptedException {
+        String body = """
+                {"email": "%s", "password": "%s"}
+                """.formatted(LocalServices.TEST_USER_EMAIL, LocalServices.TEST_USER_PASSWORD);
+        return send(post(authUrl + "/login", body)).statusCode() == 200;
+    }
+
+    private boolean createPatient() throws IOException, InterruptedException {
+        long n = createdPatients.incrementAndGet();
+        HttpResponse<String> response = send(post(patientUrl + "/patients/new", patientJson(n, "Load Test " + n)));
+        if (response.statusCode() != 200) {
+            return false;
+        }
+
+        JsonNode patient = objectMapper.readTree(response.body());
+        knownPatientIds.set((int) (n % KNOWN_PATIENT_SLOTS), patient.get("id").asText());
+        return true;
+    }
+
+    private boolean listPatients() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(patientUrl + "/patients/all?size=50")).GET().build();
+        return send(request).statusCode() == 200;
+    }
+
+    private boolean updatePatient() throws IOException, InterruptedException {
+        long known = Math.min(createdPatients.get(), KNOWN_PATIENT_SLOTS);
+        String id = known == 0 ? null : knownPatientIds.get(ThreadLocalRandom.current().nextInt((int) known));
+        if (id == null) {
+            return createPatient();
+        }
+
+        // keep the email that belongs to this id, only the name changes
+        HttpResponse<String> current = send(HttpRequest.newBuilder(URI.create(patientUrl + "/patients/" + id))
+                .GET().build());
+        if (current.statusCode() != 200) {
+            return false;
+        }
+        String email = objectMapper.readTree(current.body()).get("email").asText();
+
+        String body = """
+                {"name": "Updated %d", "email": "%s", "address": "456 Elm St", "dateOfBirth": "1990-09-23"}
+                """.formatted(System.nanoTime(), email);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(patientUrl + "/patients/update/" + id))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return send(request).statusCode() == 200;
+    }
+
+    private String patientJson(long n, String name) {
+        return """
+                {"name": "%s", "email": "load-%s-%d@example.com", "address": "123 Main St",
+                 "dateOfBirth": "1985-06-15", "registeredDate": "2024-01-10"}
+                """.formatted(name, runId, n);
+    }
+
+    private static HttpRequest post(String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,64 @@
+package com.pm.loadtests;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Settings for one run, read from key=value program arguments, e.g.
+// duration=60 warmup=10 concurrency=64 seed=200 mix=login:10,create:20,list:60,update:10 virtualThreads=true
+// traceSampling=0.1 (share of requests traced, spans go to target/traces and a per-hop report is printed)
+public record LoadTestConfig(int durationSeconds,
+                             int warmupSeconds,
+                             int concurrency,
+                             int seedPatients,
+                             Map<Operation, Integer> mix,
+                             boolean virtualThreads,
+                             double traceSampling) {
+
+    public static LoadTestConfig parse(String[] args) {
+        int durationSeconds = 60;
+        int warmupSeconds = 10;
+        int concurrency = 32;
+        int seedPatients = 200;
+        Map<Operation, Integer> mix = parseMix("login:10,create:20,list:60,update:10");
+        boolean virtualThreads = false;
+        // off by default, so tracing does not skew the throughput numbers
+        double traceSampling = 0.0;
+
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+
+            switch (keyValue[0]) {
+                case "duration" -> durationSeconds = Integer.parseInt(keyValue[1]);
+                case "warmup" -> warmupSeconds = Integer.parseInt(keyValue[1]);
+                case "concurrency" -> concurrency = Integer.parseInt(keyValue[1]);
+                case "seed" -> seedPatients = Integer.parseInt(keyValue[1]);
+                case "mix" -> mix = parseMix(keyValue[1]);
+                case "virtualThreads" -> virtualThreads = Boolean.parseBoolean(keyValue[1]);
+                case "traceSampling" -> traceSampling = Double.parseDouble(keyValue[1]);
+                default -> throw new IllegalArgumentException("Unknown option " + keyValue[0]);
+            }
+        }
+
+        return new LoadTestConfig(durationSeconds, warmupSeconds, concurrency, seedPatients, mix, virtualThreads,
+                traceSampling);
+    }
+
+    // "login:10,create:20" -> relative weights per operation
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String entry : value.split(",")) {
+            String[] operationWeight = entry.split(":", 2);
+            int weight = Integer.parseInt(operationWeight[1].trim());
+            if (weight > 0) {
+                mix.put(Operation.valueOf(operationWeight[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("Traffic mix must contain at least one operation");
+        }
+        return mix;
+    }
+}
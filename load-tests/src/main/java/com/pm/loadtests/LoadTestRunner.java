@@ -0,0 +1,78 @@
+package com.pm.loadtests;
+
+import org.HdrHistogram.Histogram;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Map;
+
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+
+        try (LocalServices services = new LocalServices(config.virtualThreads(), config.traceSampling())) {
+            LoadDriver driver = new LoadDriver(config, services.authUrl(), services.patientUrl());
+
+            System.out.printf("Seeding %d patients%n", config.seedPatients());
+            driver.seed();
+
+            System.out.printf("Warming up for %ds%n", config.warmupSeconds());
+            driver.run(Duration.ofSeconds(config.warmupSeconds()));
+            driver.stats().values().forEach(EndpointStats::reset);
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            threads.resetPeakThreadCount();
+
+            System.out.printf("Running %s for %ds with %d concurrent clients on %s threads%n",
+                    config.mix(), config.durationSeconds(), config.concurrency(),
+                    config.virtualThreads() ? "virtual" : "platform");
+            driver.run(Duration.ofSeconds(config.durationSeconds()));
+
+            printReport(driver.stats(), config.durationSeconds());
+            printFootprint(threads, ManagementFactory.getMemoryMXBean());
+        }
+
+        // after the services are closed, so every buffered span has been written
+        if (config.traceSampling() > 0) {
+            TraceReport.print(LocalServices.TRACES_DIRECTORY);
+        }
+    }
+
+    private static void printReport(Map<Operation, EndpointStats> stats, int durationSeconds) {
+        System.out.printf("%n%-8s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "op", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        stats.forEach((operation, endpointStats) -> {
+            Histogram histogram = endpointStats.snapshot();
+            if (histogram.getTotalCount() == 0) {
+                return;
+            }
+
+            System.out.printf("%-8s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.name().toLowerCase(),
+                    histogram.getTotalCount(),
+                    endpointStats.errors(),
+                    (double) histogram.getTotalCount() / durationSeconds,
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+        });
+    }
+
+    // Platform threads only: virtual threads (the driver's clients, and the services' request threads when
+    // virtualThreads=true) are not reported by ThreadMXBean
+    private static void printFootprint(ThreadMXBean threads, MemoryMXBean memory) {
+        System.out.printf("%npeak platform threads %d, heap used %d MB, non-heap committed %d MB%n",
+                threads.getPeakThreadCount(),
+                memory.getHeapMemoryUsage().getUsed() / (1024 * 1024),
+                memory.getNonHeapMemoryUsage().getCommitted() / (1024 * 1024));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,151 @@
+package com.pm.loadtests;
+
+import com.pm.authservice.AuthServiceApplication;
+import com.pm.authservice.model.User;
+import com.pm.authservice.repository.UserRepository;
+import com.pm.billingservice.BillingServiceApplication;
+import com.pm.patientservice.PatientServiceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+// Starts auth-service, billing-service and patient-service as separate Spring contexts in this JVM.
+// Postgres is replaced by per-service H2 databases, MSK by an embedded KRaft broker, and patient-service
+// reaches billing over real gRPC on a loopback port. The api-gateway is not started (it is a WebFlux app
+// and cannot share this servlet classpath), so traffic goes to the services directly
+public class LocalServices implements AutoCloseable {
+
+    static final String TEST_USER_EMAIL = "testuser@test.com";
+    static final String TEST_USER_PASSWORD = "password123";
+
+    // every service jar brings spring-security and its own application.properties onto this shared
+    // classpath, so security is switched off where the real service does not use it and configuration
+    // is passed explicitly instead of being read from a properties file
+    private static final String SECURITY_AUTO_CONFIGURATION = String.join(",",
+            "org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration",
+            "org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration",
+            "org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration",
+            "org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration");
+
+    private final EmbeddedKafkaKraftBroker kafkaBroker;
+    private final ConfigurableApplicationContext authService;
+    private final ConfigurableApplicationContext billingService;
+    private final ConfigurableApplicationContext patientService;
+    private final int authPort;
+    private final int patientPort;
+    // above 0 every service also gets a FileSpanExporter writing to TRACES_DIRECTORY
+    private final double traceSampling;
+
+    static final Path TRACES_DIRECTORY = Path.of("target", "traces");
+
+    // virtualThreads sets spring.threads.virtual.enabled in every service, traceSampling the share of
+    // requests that are traced
+    public LocalServices(boolean virtualThreads, double traceSampling) {
+        this.traceSampling = traceSampling;
+        kafkaBroker = new EmbeddedKafkaKraftBroker(1, 3, "patient");
+        kafkaBroker.afterPropertiesSet();
+
+        authPort = freePort();
+        Map<String, Object> authProperties = serviceProperties("auth-service", authPort,
+                virtualThreads, traceSampling);
+        authService = start(AuthServiceApplication.class, authProperties);
+        seedTestUser();
+
+        int billingGrpcPort = freePort();
+        Map<String, Object> billingProperties = serviceProperties("billing-service", freePort(),
+                virtualThreads, traceSampling);
+        billingProperties.put("grpc.server.port", billingGrpcPort);
+        billingProperties.put("spring.autoconfigure.exclude", SECURITY_AUTO_CONFIGURATION);
+        billingService = start(BillingServiceApplication.class, billingProperties);
+
+        patientPort = freePort();
+        Map<String, Object> patientProperties = serviceProperties("patient-service", patientPort,
+                virtualThreads, traceSampling);
+        patientProperties.put("spring.autoconfigure.exclude", SECURITY_AUTO_CONFIGURATION);
+        patientProperties.put("spring.kafka.bootstrap-servers", kafkaBroker.getBrokersAsString());
+        patientProperties.put("spring.kafka.producer.key-serializer",
+                "org.apache.kafka.common.serialization.StringSerializer");
+        patientProperties.put("spring.kafka.producer.value-serializer",
+                "org.apache.kafka.common.serialization.ByteArraySerializer");
+        patientProperties.put("billing.service.address", "localhost");
+        patientProperties.put("billing.service.grpc.port", billingGrpcPort);
+        patientProperties.put("spring.kafka.template.observation-enabled", true);
+        patientService = start(PatientServiceApplication.class, patientProperties);
+    }
+
+    public String authUrl() {
+        return "http://localhost:" + authPort;
+    }
+
+    public String patientUrl() {
+        return "http://localhost:" + patientPort;
+    }
+
+    @Override
+    public void close() {
+        patientService.close();
+        billingService.close();
+        authService.close();
+        kafkaBroker.destroy();
+    }
+
+    private static Map<String, Object> serviceProperties(String name, int httpPort, boolean virtualThreads,
+                                                         double traceSampling) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.application.name", name);
+        // a config name no jar provides, so none of the services' application.properties is picked up
+        properties.put("spring.config.name", "load-test-" + name);
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("server.port", httpPort);
+        properties.put("spring.threads.virtual.enabled", virtualThreads);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        // the data.sql files of the services would shadow each other on one classpath
+        properties.put("spring.sql.init.mode", "never");
+        // only billing-service serves gRPC, the other jars merely have the starter on the classpath
+        properties.put("grpc.server.port", -1);
+        properties.put("logging.level.root", "warn");
+        properties.put("management.tracing.sampling.probability", traceSampling);
+        return properties;
+    }
+
+    private ConfigurableApplicationContext start(Class<?> application, Map<String, Object> properties) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(application).properties(properties);
+        if (traceSampling > 0) {
+            String serviceName = (String) properties.get("spring.application.name");
+            builder.initializers(context -> {
+                try {
+                    context.getBeanFactory().registerSingleton("fileSpanExporter",
+                            new FileSpanExporter(TRACES_DIRECTORY, serviceName));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return builder.run();
+    }
+
+    private void seedTestUser() {
+        User user = new User();
+        user.setEmail(TEST_USER_EMAIL);
+        user.setPassword(authService.getBean(PasswordEncoder.class).encode(TEST_USER_PASSWORD));
+        user.setRole("ADMIN");
+        authService.getBean(UserRepository.class).save(user);
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.pm.loadtests;
+
+public enum Operation {
+    LOGIN,
+    CREATE,
+    LIST,
+    UPDATE
+}
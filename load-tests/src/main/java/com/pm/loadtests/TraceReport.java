@@ -0,0 +1,115 @@
+package com.pm.loadtests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Reads the span files FileSpanExporter writes for each service (one JSON span per line) and prints latency per
+// hop, i.e. per service and span name, then where the time goes in the slowest 1% of requests: for every
+// root span name, the traces at or above its p99 and the average time each hop took inside them.
+// Also runnable on its own: TraceReport <directory>
+public class TraceReport {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws IOException {
+        print(Path.of(args.length > 0 ? args[0] : "target/traces"));
+    }
+
+    public static void print(Path directory) throws IOException {
+        List<SpanRecord> spans = read(directory);
+        if (spans.isEmpty()) {
+            System.out.printf("%nNo spans found in %s%n", directory.toAbsolutePath());
+            return;
+        }
+
+        Map<String, Histogram> hops = new TreeMap<>();
+        Map<String, List<SpanRecord>> traces = new HashMap<>();
+        for (SpanRecord span : spans) {
+            hops.computeIfAbsent(span.hop(), hop -> new Histogram(3)).recordValue(span.durationMicros());
+            traces.computeIfAbsent(span.traceId(), traceId -> new ArrayList<>()).add(span);
+        }
+
+        System.out.printf("%n%-60s %8s %9s %9s %9s%n", "hop", "spans", "p50 ms", "p99 ms", "max ms");
+        hops.forEach((hop, histogram) -> System.out.printf("%-60s %8d %9.2f %9.2f %9.2f%n",
+                hop, histogram.getTotalCount(),
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getMaxValue())));
+
+        printSlowestTraces(spans, traces);
+    }
+
+    private static void printSlowestTraces(List<SpanRecord> spans, Map<String, List<SpanRecord>> traces) {
+        Map<String, List<SpanRecord>> rootsByHop = new TreeMap<>();
+        for (SpanRecord span : spans) {
+            if (span.parentSpanId() == null) {
+                rootsByHop.computeIfAbsent(span.hop(), hop -> new ArrayList<>()).add(span);
+            }
+        }
+
+        rootsByHop.forEach((rootHop, roots) -> {
+            Histogram rootHistogram = new Histogram(3);
+            roots.forEach(root -> rootHistogram.recordValue(root.durationMicros()));
+            long p99 = rootHistogram.getValueAtPercentile(99);
+            List<SpanRecord> slowRoots = roots.stream().filter(root -> root.durationMicros() >= p99).toList();
+
+            // total time per hop inside the slow traces, averaged over those traces
+            Map<String, Long> microsPerHop = new HashMap<>();
+            for (SpanRecord root : slowRoots) {
+                for (SpanRecord span : traces.get(root.traceId())) {
+                    microsPerHop.merge(span.hop(), span.durationMicros(), Long::sum);
+                }
+            }
+
+            System.out.printf("%n%s: %d traces at or above p99 (%.2f ms)%n", rootHop, slowRoots.size(), millis(p99));
+            microsPerHop.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                    .forEach(entry -> System.out.printf("  %-58s %9.2f ms%n",
+                            entry.getKey(), millis(entry.getValue() / slowRoots.size())));
+        });
+    }
+
+    private static List<SpanRecord> read(Path directory) throws IOException {
+        List<SpanRecord> spans = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return spans;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.jsonl")) {
+            for (Path file : files) {
+                try (BufferedReader reader = Files.newBufferedReader(file)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        JsonNode span = objectMapper.readTree(line);
+                        spans.add(new SpanRecord(
+                                span.get("traceId").asText(),
+                                span.get("parentSpanId").isNull() ? null : span.get("parentSpanId").asText(),
+                                span.get("service").asText() + " " + span.get("name").asText(),
+                                Math.max(1, span.get("durationNanos").asLong() / 1000)));
+                    }
+                }
+            }
+        }
+        return spans;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private record SpanRecord(String traceId, String parentSpanId, String hop, long durationMicros) {
+    }
+}
@@ -0,0 +1,91 @@
+package com.pm.patientservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+// Read-through caches in front of the patient table. PatientService keeps them in step with its own
+// writes; writes made by other instances become visible once an entry's TTL runs out, and the unique
+// email constraint in the database stays the final guard against duplicates
+@Component
+public class PatientCache {
+
+    private final Cache<UUID, PatientResponseDTO> patientsById;
+
+    // email -> id of the patient using it, or empty when no patient does. One entry answers both
+    // "does this email exist" and "does another patient than X use it"
+    private final Cache<String, Optional<UUID>> emailOwners;
+
+    public PatientCache(@Value("${patient.cache.max-size:10000}") long maxSize,
+                        @Value("${patient.cache.ttl:10m}") Duration ttl,
+                        // unused emails are only trusted briefly, another instance may claim them at any time
+                        @Value("${patient.cache.absent-email-ttl:30s}") Duration absentEmailTtl,
+                        MeterRegistry meterRegistry) {
+        this.patientsById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.emailOwners = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Optional<UUID>>() {
+                    @Override
+                    public long expireAfterCreate(String email, Optional<UUID> owner, long currentTime) {
+                        return (owner.isPresent() ? ttl : absentEmailTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String email, Optional<UUID> owner, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(email, owner, currentTime);
+                    }
+
+                    // reads do not extend an entry's life
+                    @Override
+                    public long expireAfterRead(String email, Optional<UUID> owner, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        // hit ratio = cache.gets{result=hit} / cache.gets, per cache name
+        CaffeineCacheMetrics.monitor(meterRegistry, patientsById, "patientsById");
+        CaffeineCacheMetrics.monitor(meterRegistry, emailOwners, "patientEmailOwners");
+    }
+
+    // returns null (and caches nothing) when the loader finds no patient
+    public PatientResponseDTO getPatient(UUID id, Function<UUID, PatientResponseDTO> loader) {
+        return patientsById.get(id, loader);
+    }
+
+    public Optional<UUID> getEmailOwner(String email, Function<String, Optional<UUID>> loader) {
+        return emailOwners.get(email, loader);
+    }
+
+    public void putPatient(PatientResponseDTO patient) {
+        UUID id = UUID.fromString(patient.getId());
+        patientsById.put(id, patient);
+        emailOwners.put(patient.getEmail(), Optional.of(id));
+    }
+
+    public void putEmailOwner(String email, UUID id) {
+        emailOwners.put(email, Optional.of(id));
+    }
+
+    public void evictPatient(UUID id, String email) {
+        patientsById.invalidate(id);
+        emailOwners.invalidate(email);
+    }
+}
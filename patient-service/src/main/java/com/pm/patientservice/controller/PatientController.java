@@ -1,35 +1,105 @@
 package com.pm.patientservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.patientservice.dto.PatientImportResponseDTO;
+import com.pm.patientservice.dto.PatientPageResponseDTO;
 import com.pm.patientservice.dto.PatientRequestDTO;
 import com.pm.patientservice.dto.PatientResponseDTO;
 import com.pm.patientservice.dto.validators.CreatePatientValidationGroup;
+import com.pm.patientservice.pagination.PatientSort;
+import com.pm.patientservice.search.PatientSearchCriteria;
+import com.pm.patientservice.service.PatientImportService;
 import com.pm.patientservice.service.PatientService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.groups.Default;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.UUID;
 
+// Reads carry an ETag derived from the entity versions. A GET whose If-None-Match still matches is answered
+// with 304 and no body (Spring checks this when the ResponseEntity has an ETag), so pollers and the gateway's
+// EtagCache skip the transfer and the serialization
 @RestController
 @RequestMapping("/patients")
 @Tag(name = "Patient", description = "API for managing Patient Data")
 public class PatientController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final PatientService patientService;
+    private final PatientImportService patientImportService;
+    private final ObjectMapper objectMapper;
 
-    public PatientController(PatientService patientService) {
+    public PatientController(PatientService patientService, PatientImportService patientImportService,
+                             ObjectMapper objectMapper) {
         this.patientService = patientService;
+        this.patientImportService = patientImportService;
+        this.objectMapper = objectMapper;
     }
 
+    // Returns one page of patients. Pass the returned nextCursor back as ?cursor= to get the following page
     @GetMapping("/all")
-    @Operation(summary = "Get patients")
-    public ResponseEntity<List<PatientResponseDTO>> getPatients() {
-        List<PatientResponseDTO> patients = patientService.getPatients();
-        return ResponseEntity.ok().body(patients);
+    @Operation(summary = "Get a page of patients")
+    public ResponseEntity<PatientPageResponseDTO> getPatients(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "REGISTERED_DATE") PatientSort sort) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        PatientPageResponseDTO page = patientService.getPatients(cursor, pageSize, sort);
+        return ResponseEntity.ok().eTag(pageEtag(page)).body(page);
+    }
+
+    // Finds patients by name prefix, exact email, address substring and/or date-of-birth range (ISO dates,
+    // both ends inclusive). Matching is case-insensitive except for email. Paginated like /all
+    @GetMapping("/search")
+    @Operation(summary = "Search patients")
+    public ResponseEntity<PatientPageResponseDTO> searchPatients(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String address,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateOfBirthFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateOfBirthTo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        PatientSearchCriteria criteria = new PatientSearchCriteria(name, email, address, dateOfBirthFrom, dateOfBirthTo);
+        PatientPageResponseDTO page = patientService.searchPatients(criteria, cursor, pageSize);
+        return ResponseEntity.ok().eTag(pageEtag(page)).body(page);
+    }
+
+    // Streams every patient as newline-delimited JSON, one object per line, without buffering the full list
+    @GetMapping(path = "/stream", produces = "application/x-ndjson")
+    @Operation(summary = "Stream all patients as NDJSON")
+    public ResponseEntity<StreamingResponseBody> streamPatients() {
+        StreamingResponseBody body = outputStream -> patientService.streamPatients(patient -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(patient));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get a patient by id")
+    public ResponseEntity<PatientResponseDTO> getPatient(@PathVariable UUID id) {
+        PatientResponseDTO patient = patientService.getPatient(id);
+        return ResponseEntity.ok().eTag(String.valueOf(patient.getVersion())).body(patient);
     }
 
     @PostMapping(path = "/new")
@@ -39,12 +109,25 @@ public class PatientController {
         return ResponseEntity.ok().body(patientResponseDTO);
     }
 
+    // The request body is read as a stream, so uploads of any size are imported with bounded memory
+    @PostMapping(path = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Bulk import patients from a JSON array")
+    public ResponseEntity<PatientImportResponseDTO> importPatientsJson(InputStream body) throws IOException {
+        return ResponseEntity.ok().body(patientImportService.importJson(body));
+    }
+
+    @PostMapping(path = "/import", consumes = "text/csv")
+    @Operation(summary = "Bulk import patients from CSV")
+    public ResponseEntity<PatientImportResponseDTO> importPatientsCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok().body(patientImportService.importCsv(body));
+    }
+
     //@RequestBody is used to parse contents from the HTTP request and use it as function parameters
     @PutMapping(path = "/update/{id}")
     @Operation(summary = "Update patient details")
     public ResponseEntity<PatientResponseDTO> updatePatient(@PathVariable UUID id, @Validated({Default.class}) @RequestBody PatientRequestDTO patientRequestDTO) {
         PatientResponseDTO patientResponseDTO = patientService.updatePatient(id, patientRequestDTO);
-        return ResponseEntity.ok().body(patientResponseDTO);
+        return ResponseEntity.ok().eTag(String.valueOf(patientResponseDTO.getVersion())).body(patientResponseDTO);
     }
 
     @DeleteMapping(path = "/delete/{id}")
@@ -55,4 +138,14 @@ public class PatientController {
         return ResponseEntity.noContent().build();
     }
 
+    // changes whenever a patient on the page is updated, added or removed, or the next cursor moves
+    private static String pageEtag(PatientPageResponseDTO page) {
+        StringBuilder versions = new StringBuilder();
+        for (PatientResponseDTO patient : page.getPatients()) {
+            versions.append(patient.getId()).append(':').append(patient.getVersion()).append(';');
+        }
+        versions.append(page.getNextCursor());
+        return DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
 }
@@ -0,0 +1,39 @@
+package com.pm.patientservice.dto;
+
+public class PatientImportErrorDTO {
+
+    // 1-based position of the record in the upload (data rows only, the CSV header is not counted)
+    private long row;
+    private String email;
+    private String message;
+
+    public PatientImportErrorDTO(long row, String email, String message) {
+        this.row = row;
+        this.email = email;
+        this.message = message;
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public void setRow(long row) {
+        this.row = row;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,63 @@
+package com.pm.patientservice.dto;
+
+import java.util.List;
+
+public class PatientImportResponseDTO {
+
+    private long received;
+    private long imported;
+    private long failed;
+    private long durationMillis;
+    private double rowsPerSecond;
+
+    // capped, so a completely broken file cannot produce an unbounded response; failed has the full count
+    private List<PatientImportErrorDTO> errors;
+
+    public long getReceived() {
+        return received;
+    }
+
+    public void setReceived(long received) {
+        this.received = received;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public List<PatientImportErrorDTO> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<PatientImportErrorDTO> errors) {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,32 @@
+package com.pm.patientservice.dto;
+
+import java.util.List;
+
+public class PatientPageResponseDTO {
+
+    private List<PatientResponseDTO> patients;
+
+    // opaque token to pass back as ?cursor= for the next page, null when there are no more patients
+    private String nextCursor;
+
+    public PatientPageResponseDTO(List<PatientResponseDTO> patients, String nextCursor) {
+        this.patients = patients;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<PatientResponseDTO> getPatients() {
+        return patients;
+    }
+
+    public void setPatients(List<PatientResponseDTO> patients) {
+        this.patients = patients;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
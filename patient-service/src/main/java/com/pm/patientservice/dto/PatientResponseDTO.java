@@ -1,5 +1,7 @@
 package com.pm.patientservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class PatientResponseDTO {
 
     private String id;
@@ -8,6 +10,10 @@ public class PatientResponseDTO {
     private String address;
     private String dateOfBirth;
 
+    // entity version, sent as the ETag header rather than in the body
+    @JsonIgnore
+    private long version;
+
     public String getId() {
         return id;
     }
@@ -48,4 +54,11 @@ public class PatientResponseDTO {
         this.dateOfBirth = dateOfBirth;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,182 @@
+package com.pm.patientservice.grpc;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.grpc.ObservationGrpcClientInterceptor;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Channels to billing-service, shared by every stub in this service. The target is resolved through DNS and
+// calls are spread round-robin over all addresses it returns, so with several billing tasks registered
+// under one Cloud Map name each task gets its share. A single HTTP/2 connection caps the number of
+// concurrent streams, so billing.service.grpc.channels > 1 opens more connections per billing task
+@Component
+public class BillingChannelPool {
+
+    private static final Logger log = LoggerFactory.getLogger(BillingChannelPool.class);
+    private static final String BILLING_SERVICE = "BillingService";
+
+    private final List<ManagedChannel> channels = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final ExecutorService callbackExecutor;
+    private final Duration shutdownTimeout;
+
+    public BillingChannelPool(
+            @Value("${billing.service.address:localhost}") String serverAddress,
+            @Value("${billing.service.grpc.port:9001}") int serverPort,
+            @Value("${billing.service.grpc.channels:1}") int channelCount,
+            @Value("${billing.service.grpc.keepalive-time:30s}") Duration keepAliveTime,
+            @Value("${billing.service.grpc.keepalive-timeout:10s}") Duration keepAliveTimeout,
+            @Value("${billing.service.grpc.retry.max-attempts:3}") int maxAttempts,
+            @Value("${billing.service.grpc.retry.initial-backoff:100ms}") Duration initialBackoff,
+            @Value("${billing.service.grpc.retry.max-backoff:1s}") Duration maxBackoff,
+            @Value("${billing.service.grpc.hedging.enabled:false}") boolean hedgingEnabled,
+            @Value("${billing.service.grpc.hedging.delay:200ms}") Duration hedgingDelay,
+            @Value("${billing.service.grpc.shutdown-timeout:5s}") Duration shutdownTimeout,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            MeterRegistry meterRegistry,
+            ObservationRegistry observationRegistry) {
+
+        String target = "dns:///" + serverAddress + ":" + serverPort;
+        log.info("Connecting to Billing Service GRPC service at {} with {} channel(s)", target, channelCount);
+
+        Map<String, Object> serviceConfig = serviceConfig(maxAttempts, initialBackoff, maxBackoff,
+                hedgingEnabled, hedgingDelay);
+        // response callbacks and stream handlers run on virtual threads instead of
+        // gRPC's default cached platform-thread pool
+        this.callbackExecutor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        this.shutdownTimeout = shutdownTimeout;
+
+        for (int i = 0; i < channelCount; i++) {
+            ManagedChannelBuilder<?> channelBuilder = ManagedChannelBuilder.forTarget(target)
+                    .usePlaintext()
+                    .defaultLoadBalancingPolicy("round_robin")
+                    .defaultServiceConfig(serviceConfig)
+                    .enableRetry()
+                    .maxRetryAttempts(maxAttempts)
+                    .keepAliveTime(keepAliveTime.toMillis(), TimeUnit.MILLISECONDS)
+                    .keepAliveTimeout(keepAliveTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    // the last interceptor runs first: the observation span covers retries and writes the
+                    // trace context into the call's metadata for billing-service to continue
+                    .intercept(new LatencyInterceptor(meterRegistry),
+                            new ObservationGrpcClientInterceptor(observationRegistry));
+            if (callbackExecutor != null) {
+                channelBuilder.executor(callbackExecutor);
+            }
+            channels.add(channelBuilder.build());
+        }
+    }
+
+    public Channel next() {
+        return channels.get(Math.floorMod(next.getAndIncrement(), channels.size()));
+    }
+
+    // Lets in-flight calls finish for up to billing.service.grpc.shutdown-timeout, then cancels the rest
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        channels.forEach(ManagedChannel::shutdown);
+
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        for (ManagedChannel channel : channels) {
+            long remaining = deadline - System.nanoTime();
+            if (!channel.awaitTermination(Math.max(remaining, 0), TimeUnit.NANOSECONDS)) {
+                log.warn("Billing gRPC channel did not terminate in {}, cancelling remaining calls", shutdownTimeout);
+                channel.shutdownNow();
+            }
+        }
+
+        if (callbackExecutor != null) {
+            callbackExecutor.shutdown();
+        }
+    }
+
+    // gRPC service config (https://github.com/grpc/grpc/blob/master/doc/service_config.md). The unary calls
+    // are safe to repeat because billing-service creates at most one account per patientId, so they are
+    // retried on UNAVAILABLE, or hedged when hedging is enabled. The CreateBillingAccounts stream, which the
+    // import can use instead of BatchCreate, is not listed and so never retried.
+    // Numbers must be Doubles and durations strings like "0.1s" in this map form
+    private static Map<String, Object> serviceConfig(int maxAttempts, Duration initialBackoff,
+                                                     Duration maxBackoff, boolean hedgingEnabled,
+                                                     Duration hedgingDelay) {
+        List<Map<String, Object>> names = List.of(
+                Map.of("service", BILLING_SERVICE, "method", "CreateBillingAccount"),
+                Map.of("service", BILLING_SERVICE, "method", "BatchCreate"));
+
+        Map<String, Object> methodConfig = hedgingEnabled
+                ? Map.of("name", names,
+                        "hedgingPolicy", Map.of(
+                                "maxAttempts", (double) maxAttempts,
+                                "hedgingDelay", seconds(hedgingDelay),
+                                "nonFatalStatusCodes", List.of(Status.Code.UNAVAILABLE.name())))
+                : Map.of("name", names,
+                        "retryPolicy", Map.of(
+                                "maxAttempts", (double) maxAttempts,
+                                "initialBackoff", seconds(initialBackoff),
+                                "maxBackoff", seconds(maxBackoff),
+                                "backoffMultiplier", 2.0,
+                                "retryableStatusCodes", List.of(Status.Code.UNAVAILABLE.name())));
+
+        return Map.of("methodConfig", List.of(methodConfig));
+    }
+
+    private static String seconds(Duration duration) {
+        return duration.toMillis() / 1000.0 + "s";
+    }
+
+    // Records billing.grpc.client.calls{method,status}: wall time of each call as the caller sees it,
+    // including retry and hedging attempts
+    private static class LatencyInterceptor implements ClientInterceptor {
+
+        private final MeterRegistry meterRegistry;
+
+        LatencyInterceptor(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                                   CallOptions callOptions, Channel next) {
+            return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+                @Override
+                public void start(Listener<RespT> responseListener, Metadata headers) {
+                    Timer.Sample sample = Timer.start(meterRegistry);
+                    super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                        @Override
+                        public void onClose(Status status, Metadata trailers) {
+                            sample.stop(Timer.builder("billing.grpc.client.calls")
+                                    .tag("method", method.getBareMethodName())
+                                    .tag("status", status.getCode().name())
+                                    .publishPercentileHistogram()
+                                    .register(meterRegistry));
+                            super.onClose(status, trailers);
+                        }
+                    }, headers);
+                }
+            };
+        }
+    }
+}
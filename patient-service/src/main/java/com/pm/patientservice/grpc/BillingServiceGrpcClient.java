@@ -1,33 +1,48 @@
 package com.pm.patientservice.grpc;
 
+import billing.BatchBillingRequest;
 import billing.BillingRequest;
 import billing.BillingResponse;
 import billing.BillingServiceGrpc;
-import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.pm.patientservice.model.Patient;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Calls are timed by BillingChannelPool (billing.grpc.client.calls{method,status}); responses are only logged at DEBUG
 @Service
 public class BillingServiceGrpcClient {
 
     private static final Logger log = LoggerFactory.getLogger(
             BillingServiceGrpcClient.class);
-    private final BillingServiceGrpc.BillingServiceBlockingStub blockingStub;
+    private final BillingChannelPool channelPool;
+    private final long deadlineMillis;
+    private final long streamDeadlineMillis;
+    private final int batchSize;
 
     public BillingServiceGrpcClient(
-            @Value("${billing.service.address:localhost}") String serverAddress,
-            @Value("${billing.service.grpc.port:9001}") int serverPort) {
-
-        log.info("Connecting to Billing Service GRPC service at {}:{}",
-                serverAddress, serverPort);
-
-        ManagedChannel channel = ManagedChannelBuilder.forAddress(serverAddress,
-                serverPort).usePlaintext().build();
-
-        blockingStub = BillingServiceGrpc.newBlockingStub(channel);
+            BillingChannelPool channelPool,
+            @Value("${billing.service.grpc.deadline-ms:2000}") long deadlineMillis,
+            @Value("${billing.service.grpc.stream-deadline-ms:60000}") long streamDeadlineMillis,
+            @Value("${billing.service.grpc.batch-size:500}") int batchSize) {
+        this.channelPool = channelPool;
+        this.deadlineMillis = deadlineMillis;
+        this.streamDeadlineMillis = streamDeadlineMillis;
+        this.batchSize = batchSize;
     }
 
     public BillingResponse createBillingAccount(String patientId, String name,
@@ -36,8 +51,120 @@ public class BillingServiceGrpcClient {
         BillingRequest request = BillingRequest.newBuilder().setPatientId(patientId)
                 .setName(name).setEmail(email).build();
 
-        BillingResponse response = blockingStub.createBillingAccount(request);
-        log.info("Received response from billing service via GRPC: {}", response);
+        BillingResponse response = blockingStub().createBillingAccount(request);
+        log.debug("Received response from billing service via GRPC: {}", response);
         return response;
     }
-}
\ No newline at end of file
+
+    // Non-blocking variant: the call is bounded by billing.service.grpc.deadline-ms and completes
+    // on the gRPC transport thread, so the caller can run other work while billing responds
+    public CompletableFuture<BillingResponse> createBillingAccountAsync(String patientId, String name,
+                                                                       String email) {
+
+        BillingRequest request = BillingRequest.newBuilder().setPatientId(patientId)
+                .setName(name).setEmail(email).build();
+
+        ListenableFuture<BillingResponse> call = BillingServiceGrpc.newFutureStub(channelPool.next())
+                .withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS)
+                .createBillingAccount(request);
+
+        CompletableFuture<BillingResponse> result = new CompletableFuture<>();
+        Futures.addCallback(call, new FutureCallback<>() {
+            @Override
+            public void onSuccess(BillingResponse response) {
+                log.debug("Received response from billing service via GRPC: {}", response);
+                result.complete(response);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    // Creates accounts for many patients with one BatchCreate call per billing.service.grpc.batch-size
+    // patients instead of one round trip each
+    public List<BillingResponse> createBillingAccounts(List<Patient> patients) {
+        List<BillingResponse> responses = new ArrayList<>(patients.size());
+
+        for (int from = 0; from < patients.size(); from += batchSize) {
+            BatchBillingRequest.Builder batch = BatchBillingRequest.newBuilder();
+            patients.subList(from, Math.min(from + batchSize, patients.size()))
+                    .forEach(patient -> batch.addRequests(toBillingRequest(patient)));
+
+            responses.addAll(blockingStub()
+                    .batchCreate(batch.build())
+                    .getResponsesList());
+        }
+
+        log.debug("Created {} billing accounts via GRPC batch", responses.size());
+        return responses;
+    }
+
+    // Runs createBillingAccounts on the application task executor (virtual threads when
+    // spring.threads.virtual.enabled is set), so callers can carry on while billing-service works
+    @Async
+    public CompletableFuture<List<BillingResponse>> createBillingAccountsAsync(List<Patient> patients) {
+        return CompletableFuture.completedFuture(createBillingAccounts(patients));
+    }
+
+    // Streams account creation over a single call. Requests are only written while the transport reports
+    // it is ready, so producing faster than billing-service consumes never buffers the whole input in memory
+    public CompletableFuture<List<BillingResponse>> streamBillingAccounts(Iterator<Patient> patients) {
+        CompletableFuture<List<BillingResponse>> result = new CompletableFuture<>();
+
+        BillingServiceGrpc.newStub(channelPool.next())
+                .withDeadlineAfter(streamDeadlineMillis, TimeUnit.MILLISECONDS)
+                .createBillingAccounts(new ClientResponseObserver<BillingRequest, BillingResponse>() {
+
+                    private final List<BillingResponse> responses = new ArrayList<>();
+                    private boolean requestsCompleted;
+
+                    @Override
+                    public void beforeStart(ClientCallStreamObserver<BillingRequest> requestStream) {
+                        // invoked serially by gRPC whenever the outbound buffer has drained
+                        requestStream.setOnReadyHandler(() -> {
+                            while (requestStream.isReady() && patients.hasNext()) {
+                                requestStream.onNext(toBillingRequest(patients.next()));
+                            }
+                            if (!patients.hasNext() && !requestsCompleted) {
+                                requestsCompleted = true;
+                                requestStream.onCompleted();
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onNext(BillingResponse response) {
+                        responses.add(response);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        result.completeExceptionally(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        log.debug("Created {} billing accounts via GRPC stream", responses.size());
+                        result.complete(responses);
+                    }
+                });
+
+        return result;
+    }
+
+    // Stubs are cheap wrappers, a new one per call spreads the calls over the pooled channels.
+    // Every unary call is bounded by billing.service.grpc.deadline-ms, retries included
+    private BillingServiceGrpc.BillingServiceBlockingStub blockingStub() {
+        return BillingServiceGrpc.newBlockingStub(channelPool.next())
+                .withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static BillingRequest toBillingRequest(Patient patient) {
+        return BillingRequest.newBuilder().setPatientId(patient.getId().toString())
+                .setName(patient.getName()).setEmail(patient.getEmail()).build();
+    }
+}
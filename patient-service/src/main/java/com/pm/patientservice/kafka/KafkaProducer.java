@@ -1,12 +1,13 @@
 package com.pm.patientservice.kafka;
 
-import com.pm.patientservice.model.Patient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import patient.events.PatientEvent;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service // @Service -> Spring will manage this class and inject all the dependencies. KafkaTemplate in this scenario
 public class KafkaProducer {
 
@@ -17,19 +18,29 @@ public class KafkaProducer {
         this.kafkaTemplate = kafkaTemplate;
     }
 
-    public void sendEvent(Patient patient){
-        PatientEvent event = PatientEvent.newBuilder()
-                .setPatientId(patient.getId().toString())
-                .setName(patient.getName())
-                .setEmail(patient.getEmail())
-                .setEventType("PATIENT_CREATED")
-                .build();
-
+    // Keyed by patient id: all events of one patient land on the same partition, in the order they were sent
+    public void sendEvent(PatientEvent event){
         // Convert event to byteArray and send it to appropriate topic
         try{
-            kafkaTemplate.send("patient", event.toByteArray());
+            kafkaTemplate.send(PatientEventOutbox.TOPIC, event.getPatientId(), event.toByteArray());
+        } catch (Exception e) {
+            log.error("Error sending patient event: {}", event);
+        }
+    }
+
+    // Completes once the broker acknowledges the event. Failures are logged and the future still
+    // completes normally, matching sendEvent, so a lost event never fails the patient write
+    public CompletableFuture<Void> sendEventAsync(PatientEvent event){
+        try{
+            return kafkaTemplate.send(PatientEventOutbox.TOPIC, event.getPatientId(), event.toByteArray())
+                    .<Void>thenApply(result -> null)
+                    .exceptionally(e -> {
+                        log.error("Error sending patient event: {}", event, e);
+                        return null;
+                    });
         } catch (Exception e) {
-            log.error("Error sending patient created event: {}", event);
+            log.error("Error sending patient event: {}", event, e);
+            return CompletableFuture.completedFuture(null);
         }
     }
 
@@ -0,0 +1,161 @@
+package com.pm.patientservice.kafka;
+
+import com.pm.patientservice.model.OutboxEvent;
+import com.pm.patientservice.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Publishes outbox rows to Kafka in batches. A batch is only deleted after every record in it has been
+// acknowledged by the broker; if anything fails the transaction rolls back and the whole batch is
+// retried on the next run, so delivery is at-least-once
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long sendTimeoutMillis;
+    private final Timer batchAckTimer;
+    private final Counter relayedEvents;
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       KafkaTemplate<String, byte[]> kafkaTemplate,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${patient.outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${patient.outbox.relay.send-timeout-ms:10000}") long sendTimeoutMillis,
+                       MeterRegistry meterRegistry,
+                       Tracer tracer,
+                       Propagator propagator) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        // single sends are timed by KafkaTemplate itself (spring.kafka.template); this is one batch from send to last ack
+        this.batchAckTimer = Timer.builder("patient.outbox.relay.batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.relayedEvents = meterRegistry.counter("patient.outbox.relay.events");
+        this.tracer = tracer;
+        this.propagator = propagator;
+    }
+
+    @Scheduled(fixedDelayString = "${patient.outbox.relay.interval-ms:200}")
+    public void relay() {
+        try {
+            // keep draining while batches come back full, so a backlog clears without waiting for the next tick
+            Integer published;
+            do {
+                published = transactionTemplate.execute(status -> publishBatch());
+            } while (published != null && published == batchSize);
+        } catch (Exception e) {
+            log.error("Error relaying patient events from the outbox, will retry: {}", e.getMessage());
+        }
+    }
+
+    private int publishBatch() {
+        List<OutboxEvent> batch = inAggregateOrder(outboxEventRepository.lockOldest(Limit.of(batchSize)));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // hand the whole batch to the producer first so it can fill and compress record batches,
+        // then wait once for all acknowledgements
+        long startNanos = System.nanoTime();
+        CompletableFuture<?>[] acks = batch.stream()
+                .map(this::send)
+                .toArray(CompletableFuture[]::new);
+        kafkaTemplate.flush();
+
+        try {
+            CompletableFuture.allOf(acks).get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException("Kafka did not acknowledge outbox batch", e);
+        }
+        batchAckTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        relayedEvents.increment(batch.size());
+
+        outboxEventRepository.deleteAllByIdInBatch(batch.stream().map(OutboxEvent::getId).toList());
+        log.debug("Relayed {} patient events from the outbox", batch.size());
+        return batch.size();
+    }
+
+    // SKIP LOCKED lets another relay hold an older event of a patient whose newer events we just locked. Sending
+    // those now would put them on the partition ahead of the older one, so they are left for a later run; by
+    // then the other relay has either published the older event or rolled back and released it
+    private List<OutboxEvent> inAggregateOrder(List<OutboxEvent> locked) {
+        if (locked.isEmpty()) {
+            return locked;
+        }
+
+        Map<String, Instant> heldElsewhere = new HashMap<>();
+        outboxEventRepository.findOldestPendingOutside(
+                        locked.stream().map(OutboxEvent::getAggregateId).collect(Collectors.toSet()),
+                        locked.stream().map(OutboxEvent::getId).toList())
+                .forEach(pending -> heldElsewhere.put(pending.getAggregateId(), pending.getOldestCreatedAt()));
+
+        List<OutboxEvent> sendable = locked.stream()
+                .filter(event -> {
+                    Instant older = heldElsewhere.get(event.getAggregateId());
+                    return older == null || event.getCreatedAt().isBefore(older);
+                })
+                .toList();
+        if (sendable.size() < locked.size()) {
+            log.debug("Deferred {} outbox events behind older events held by another relay",
+                    locked.size() - sendable.size());
+        }
+        return sendable;
+    }
+
+    // Sends inside a span continuing the trace of the request that wrote the event. KafkaTemplate's own
+    // observation then becomes its child and writes that trace context into the record's headers
+    private CompletableFuture<?> send(OutboxEvent event) {
+        if (event.getTraceParent() == null) {
+            return sendKeyed(event);
+        }
+
+        Span span = propagator.extract(event.getTraceParent(), (traceParent, key) ->
+                        PatientEventOutbox.TRACE_PARENT.equals(key) ? traceParent : null)
+                .name("outbox relay")
+                .tag("outbox.delay.ms", String.valueOf(
+                        Instant.now().toEpochMilli() - event.getCreatedAt().toEpochMilli()))
+                .start();
+        try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+            return sendKeyed(event);
+        } finally {
+            span.end();
+        }
+    }
+
+    // Keyed by patient id, so a patient's events share a partition. A batch is sent oldest first, never ahead
+    // of an older event held by another relay (inAggregateOrder), and the idempotent producer keeps retried
+    // sends in order, so that partition holds each patient's events in commit order
+    private CompletableFuture<?> sendKeyed(OutboxEvent event) {
+        return kafkaTemplate.send(event.getTopic(), event.getAggregateId(), event.getPayload());
+    }
+}
@@ -0,0 +1,54 @@
+package com.pm.patientservice.kafka;
+
+import com.pm.patientservice.model.OutboxEvent;
+import com.pm.patientservice.repository.OutboxEventRepository;
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import patient.events.PatientEvent;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+@Service
+public class PatientEventOutbox {
+
+    static final String TOPIC = "patient";
+    static final String TRACE_PARENT = "traceparent";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    public PatientEventOutbox(OutboxEventRepository outboxEventRepository, Tracer tracer, Propagator propagator) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.tracer = tracer;
+        this.propagator = propagator;
+    }
+
+    // MANDATORY: the event must commit or roll back together with the patient write that caused it
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(PatientEvent event) {
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setAggregateId(event.getPatientId());
+        outboxEvent.setTopic(TOPIC);
+        outboxEvent.setPayload(event.toByteArray());
+        outboxEvent.setCreatedAt(Instant.now());
+        outboxEvent.setTraceParent(currentTraceParent());
+        outboxEventRepository.save(outboxEvent);
+    }
+
+    private String currentTraceParent() {
+        TraceContext context = tracer.currentTraceContext().context();
+        if (context == null) {
+            return null;
+        }
+        Map<String, String> headers = new HashMap<>();
+        propagator.inject(context, headers, Map::put);
+        return headers.get(TRACE_PARENT);
+    }
+}
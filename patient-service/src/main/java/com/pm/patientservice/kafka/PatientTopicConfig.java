@@ -0,0 +1,20 @@
+package com.pm.patientservice.kafka;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class PatientTopicConfig {
+
+    // KafkaAdmin creates the topic on startup, or adds partitions when it has fewer than configured.
+    // Partitions bound how many analytics consumers can share the stream
+    @Bean
+    public NewTopic patientTopic(@Value("${patient.events.partitions:3}") int partitions) {
+        return TopicBuilder.name(PatientEventOutbox.TOPIC)
+                .partitions(partitions)
+                .build();
+    }
+}
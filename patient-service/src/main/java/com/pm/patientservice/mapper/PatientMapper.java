@@ -3,8 +3,13 @@ package com.pm.patientservice.mapper;
 import com.pm.patientservice.dto.PatientRequestDTO;
 import com.pm.patientservice.dto.PatientResponseDTO;
 import com.pm.patientservice.model.Patient;
+import com.google.protobuf.FieldMask;
+import patient.events.PatientEvent;
+import patient.events.PatientEventType;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 public class PatientMapper {
 
@@ -16,6 +21,7 @@ public class PatientMapper {
         patientResponseDTO.setEmail(patient.getEmail());
         patientResponseDTO.setAddress(patient.getAddress());
         patientResponseDTO.setDateOfBirth(patient.getDateOfBirth().toString());
+        patientResponseDTO.setVersion(patient.getVersion() != null ? patient.getVersion() : 0);
         return patientResponseDTO;
     }
 
@@ -30,4 +36,75 @@ public class PatientMapper {
         return patient;
     }
 
+    // field mask paths, named after the PatientEvent fields they refer to
+    public static final String NAME = "name";
+    public static final String EMAIL = "email";
+    public static final String ADDRESS = "address";
+    public static final String DATE_OF_BIRTH = "date_of_birth";
+
+    // full record, the first thing consumers learn about a patient
+    public static PatientEvent toPatientCreatedEvent(Patient patient){
+        return PatientEvent.newBuilder()
+                .setPatientId(patient.getId().toString())
+                .setType(PatientEventType.PATIENT_CREATED)
+                .setVersion(version(patient))
+                .setName(patient.getName())
+                .setEmail(patient.getEmail())
+                .setAddress(patient.getAddress())
+                .setDateOfBirth(patient.getDateOfBirth().toString())
+                .setRegisteredDate(patient.getRegisteredDate().toString())
+                .build();
+    }
+
+    // only the changed fields are set, the mask tells consumers which ones to overwrite
+    public static PatientEvent toPatientUpdatedEvent(Patient patient, List<String> changedFields){
+        PatientEvent.Builder event = PatientEvent.newBuilder()
+                .setPatientId(patient.getId().toString())
+                .setType(PatientEventType.PATIENT_UPDATED)
+                .setVersion(version(patient))
+                .setChangedFields(FieldMask.newBuilder().addAllPaths(changedFields));
+
+        for (String field : changedFields) {
+            switch (field) {
+                case NAME -> event.setName(patient.getName());
+                case EMAIL -> event.setEmail(patient.getEmail());
+                case ADDRESS -> event.setAddress(patient.getAddress());
+                case DATE_OF_BIRTH -> event.setDateOfBirth(patient.getDateOfBirth().toString());
+                default -> throw new IllegalArgumentException("Unknown patient field " + field);
+            }
+        }
+        return event.build();
+    }
+
+    // a delete does not bump the entity version, so it is numbered one past the last write
+    public static PatientEvent toPatientDeletedEvent(Patient patient){
+        return PatientEvent.newBuilder()
+                .setPatientId(patient.getId().toString())
+                .setType(PatientEventType.PATIENT_DELETED)
+                .setVersion(version(patient) + 1)
+                .build();
+    }
+
+    // the event fields an update with this request would change, empty when it changes nothing
+    public static List<String> changedFields(Patient patient, PatientRequestDTO patientRequestDTO){
+        List<String> changedFields = new ArrayList<>();
+        if (!patient.getName().equals(patientRequestDTO.getName())) {
+            changedFields.add(NAME);
+        }
+        if (!patient.getEmail().equals(patientRequestDTO.getEmail())) {
+            changedFields.add(EMAIL);
+        }
+        if (!patient.getAddress().equals(patientRequestDTO.getAddress())) {
+            changedFields.add(ADDRESS);
+        }
+        if (!patient.getDateOfBirth().equals(LocalDate.parse(patientRequestDTO.getDateOfBirth()))) {
+            changedFields.add(DATE_OF_BIRTH);
+        }
+        return changedFields;
+    }
+
+    private static long version(Patient patient) {
+        return patient.getVersion() != null ? patient.getVersion() : 0;
+    }
+
 }
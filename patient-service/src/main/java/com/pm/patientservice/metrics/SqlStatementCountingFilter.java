@@ -0,0 +1,46 @@
+package com.pm.patientservice.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Records how many SQL statements each request issued, as patient.http.sql.statements{method,uri}. A count
+// that grows with the page size points at an N+1 query. Work handed to other threads (@Async billing calls,
+// the NDJSON stream body) is not attributed to the request
+@Component
+public class SqlStatementCountingFilter extends OncePerRequestFilter {
+
+    private final SqlStatementMetrics sqlStatementMetrics;
+    private final MeterRegistry meterRegistry;
+
+    public SqlStatementCountingFilter(SqlStatementMetrics sqlStatementMetrics, MeterRegistry meterRegistry) {
+        this.sqlStatementMetrics = sqlStatementMetrics;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        sqlStatementMetrics.beginRequest();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = sqlStatementMetrics.endRequest();
+            // the mapped pattern (/patients/{id}) rather than the raw path keeps the number of series bounded
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("patient.http.sql.statements")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                    .register(meterRegistry)
+                    .record(statements);
+        }
+    }
+}
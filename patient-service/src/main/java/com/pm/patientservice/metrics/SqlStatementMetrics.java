@@ -0,0 +1,57 @@
+package com.pm.patientservice.metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Sees every SQL statement Hibernate prepares. Counts them for the request running on the current thread
+// (see SqlStatementCountingFilter) and logs a random sample of them at DEBUG, replacing show-sql, which
+// formatted and printed every statement. To see SQL set logging.level.com.pm.patientservice.sql=debug
+@Component
+public class SqlStatementMetrics implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final Logger sqlLog = LoggerFactory.getLogger("com.pm.patientservice.sql");
+
+    // statements issued so far by the current request, null outside a counted request
+    private static final ThreadLocal<int[]> requestStatements = new ThreadLocal<>();
+
+    private final double logSampleRate;
+
+    public SqlStatementMetrics(@Value("${patient.sql.log-sample-rate:0.01}") double logSampleRate) {
+        this.logSampleRate = logSampleRate;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = requestStatements.get();
+        if (count != null) {
+            count[0]++;
+        }
+        if (sqlLog.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < logSampleRate) {
+            sqlLog.debug("{}", sql);
+        }
+        return sql;
+    }
+
+    void beginRequest() {
+        requestStatements.set(new int[1]);
+    }
+
+    int endRequest() {
+        int[] count = requestStatements.get();
+        requestStatements.remove();
+        return count != null ? count[0] : 0;
+    }
+}
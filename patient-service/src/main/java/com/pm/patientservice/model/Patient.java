@@ -8,6 +8,10 @@ import java.time.LocalDate;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_patient_registered_date_id", columnList = "registeredDate, id"),
+        @Index(name = "idx_patient_date_of_birth", columnList = "dateOfBirth")
+})
 public class Patient {
 
     @Id
@@ -31,6 +35,10 @@ public class Patient {
     @NotNull
     private LocalDate registeredDate;
 
+    // bumped by Hibernate on every update; guards concurrent updates and is the basis of the HTTP ETag
+    @Version
+    private Long version;
+
     public UUID getId() {
         return id;
     }
@@ -79,6 +87,14 @@ public class Patient {
         this.registeredDate = registeredDate;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Patient{" +
@@ -0,0 +1,49 @@
+package com.pm.patientservice.pagination;
+
+import com.pm.patientservice.exception.InvalidCursorException;
+import com.pm.patientservice.model.Patient;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+// Position of the last patient a client has seen. It is handed out as an opaque, URL-safe token
+// so clients cannot depend on (or tamper with) its layout: "<sort>|<registeredDate>|<id>"
+public record PatientCursor(PatientSort sort, LocalDate registeredDate, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static PatientCursor after(PatientSort sort, Patient patient) {
+        return new PatientCursor(sort, patient.getRegisteredDate(), patient.getId());
+    }
+
+    public String encode() {
+        String raw = sort.name() + SEPARATOR
+                + (registeredDate == null ? "" : registeredDate.toString()) + SEPARATOR
+                + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PatientCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, -1);
+            if (parts.length != 3) {
+                throw new InvalidCursorException("Malformed cursor: " + token);
+            }
+
+            PatientSort sort = PatientSort.valueOf(parts[0]);
+            LocalDate registeredDate = parts[1].isEmpty() ? null : LocalDate.parse(parts[1]);
+            if (sort == PatientSort.REGISTERED_DATE && registeredDate == null) {
+                throw new InvalidCursorException("Malformed cursor: " + token);
+            }
+
+            return new PatientCursor(sort, registeredDate, UUID.fromString(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Malformed cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.pm.patientservice.pagination;
+
+// Orderings supported by the keyset-paginated patient listing.
+// Every ordering ends with the id so that the sort key is unique and pages never overlap
+public enum PatientSort {
+    REGISTERED_DATE,
+    ID
+}
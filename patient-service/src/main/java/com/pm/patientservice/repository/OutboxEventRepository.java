@@ -0,0 +1,41 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.model.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    // Oldest events first. Rows are locked with SKIP LOCKED (lock timeout -2 in Hibernate) so several
+    // patient-service instances can drain the outbox concurrently without picking up the same rows
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e ORDER BY e.createdAt")
+    List<OutboxEvent> lockOldest(Limit limit);
+
+    // For each given aggregate, its oldest pending event outside the given ids. Rows older than a locked batch
+    // that are not part of it are held by another relay
+    @Query("SELECT e.aggregateId AS aggregateId, MIN(e.createdAt) AS oldestCreatedAt FROM OutboxEvent e " +
+            "WHERE e.aggregateId IN :aggregateIds AND e.id NOT IN :ids GROUP BY e.aggregateId")
+    List<PendingAggregate> findOldestPendingOutside(@Param("aggregateIds") Collection<String> aggregateIds,
+                                                    @Param("ids") Collection<UUID> ids);
+
+    interface PendingAggregate {
+        String getAggregateId();
+
+        Instant getOldestCreatedAt();
+    }
+}
@@ -1,17 +1,68 @@
 package com.pm.patientservice.repository;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pm.patientservice.model.Patient;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface PatientRepository extends JpaRepository<Patient,UUID> {
+public interface PatientRepository extends JpaRepository<Patient,UUID>, JpaSpecificationExecutor<Patient> {
+
+    // number of rows the JDBC driver pulls per round trip while streaming
+    int STREAM_FETCH_SIZE = 500;
 
     boolean existsByEmail(String email);
     boolean existsByEmailAndIdNot(String email, UUID id);
 
     Patient getPatientById(UUID id);
+
+    @Query("SELECT p.id FROM Patient p WHERE p.email = :email")
+    Optional<UUID> findIdByEmail(@Param("email") String email);
+
+    // one set-based lookup for a whole import chunk instead of an existsByEmail call per row
+    @Query("SELECT p.email FROM Patient p WHERE p.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // Keyset pagination: instead of OFFSET (which scans and discards every skipped row),
+    // we continue strictly after the last (registeredDate, id) seen by the client
+    @Query("SELECT p FROM Patient p ORDER BY p.registeredDate, p.id")
+    List<Patient> findFirstPageByRegisteredDate(Limit limit);
+
+    @Query("SELECT p FROM Patient p " +
+            "WHERE p.registeredDate > :registeredDate " +
+            "OR (p.registeredDate = :registeredDate AND p.id > :id) " +
+            "ORDER BY p.registeredDate, p.id")
+    List<Patient> findPageByRegisteredDateAfter(@Param("registeredDate") LocalDate registeredDate,
+                                                @Param("id") UUID id,
+                                                Limit limit);
+
+    @Query("SELECT p FROM Patient p ORDER BY p.id")
+    List<Patient> findFirstPageById(Limit limit);
+
+    @Query("SELECT p FROM Patient p WHERE p.id > :id ORDER BY p.id")
+    List<Patient> findPageByIdAfter(@Param("id") UUID id, Limit limit);
+
+    // Must be consumed inside a transaction; rows are fetched lazily from a server-side cursor
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Patient p ORDER BY p.registeredDate, p.id")
+    Stream<Patient> streamAllByRegisteredDate();
 }
@@ -0,0 +1,20 @@
+package com.pm.patientservice.search;
+
+import java.time.LocalDate;
+
+// Filters of a patient search. Every filter is optional, the ones given are combined with AND
+public record PatientSearchCriteria(String namePrefix,
+                                    String email,
+                                    String addressContains,
+                                    LocalDate dateOfBirthFrom,
+                                    LocalDate dateOfBirthTo) {
+
+    public boolean isEmpty() {
+        return isBlank(namePrefix) && isBlank(email) && isBlank(addressContains)
+                && dateOfBirthFrom == null && dateOfBirthTo == null;
+    }
+
+    static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,68 @@
+package com.pm.patientservice.search;
+
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.pagination.PatientCursor;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+// Builds the search query from only the filters that were given, so each combination gets its own plain
+// SQL statement the database can plan against the matching index (see data.sql and data-postgresql.sql):
+//   name prefix       lower(name) LIKE 'abc%'       btree on lower(name) text_pattern_ops
+//   email             email = ?                     unique index on email
+//   address substring lower(address) LIKE '%abc%'   trigram GIN index on lower(address)
+//   date of birth     date_of_birth BETWEEN ? AND ?  btree on date_of_birth
+public final class PatientSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private PatientSpecifications() {
+    }
+
+    public static Specification<Patient> matching(PatientSearchCriteria criteria) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (!PatientSearchCriteria.isBlank(criteria.namePrefix())) {
+                predicates.add(cb.like(cb.lower(root.<String>get("name")),
+                        escapeLike(criteria.namePrefix()) + "%", LIKE_ESCAPE));
+            }
+            if (!PatientSearchCriteria.isBlank(criteria.email())) {
+                predicates.add(cb.equal(root.get("email"), criteria.email().trim()));
+            }
+            if (!PatientSearchCriteria.isBlank(criteria.addressContains())) {
+                predicates.add(cb.like(cb.lower(root.<String>get("address")),
+                        "%" + escapeLike(criteria.addressContains()) + "%", LIKE_ESCAPE));
+            }
+            if (criteria.dateOfBirthFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.<LocalDate>get("dateOfBirth"), criteria.dateOfBirthFrom()));
+            }
+            if (criteria.dateOfBirthTo() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.<LocalDate>get("dateOfBirth"), criteria.dateOfBirthTo()));
+            }
+
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    // Keyset condition for results ordered by (registeredDate, id), same as the /patients/all listing
+    public static Specification<Patient> after(PatientCursor cursor) {
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.<LocalDate>get("registeredDate"), cursor.registeredDate()),
+                cb.and(cb.equal(root.get("registeredDate"), cursor.registeredDate()),
+                        cb.greaterThan(root.<UUID>get("id"), cursor.id())));
+    }
+
+    // user input is matched literally, % and _ are not wildcards
+    private static String escapeLike(String value) {
+        return value.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
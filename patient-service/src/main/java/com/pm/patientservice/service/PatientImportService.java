@@ -0,0 +1,393 @@
+package com.pm.patientservice.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.patientservice.cache.PatientCache;
+import com.pm.patientservice.dto.PatientImportErrorDTO;
+import com.pm.patientservice.dto.PatientImportResponseDTO;
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.validators.CreatePatientValidationGroup;
+import com.pm.patientservice.exception.InvalidImportException;
+import com.pm.patientservice.grpc.BillingServiceGrpcClient;
+import com.pm.patientservice.kafka.PatientEventOutbox;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Bulk onboarding of patients. Uploads are read as a stream and written in fixed-size chunks, each chunk
+// in its own transaction, so memory is bounded by the chunk size rather than the file size and Hibernate
+// can send every chunk as JDBC batches (see hibernate.jdbc.batch_size). Billing accounts for a committed
+// chunk are created in the background while the next chunk is written, with BatchCreate calls or, when
+// patient.import.billing-stream.enabled is set, over one flow-controlled CreateBillingAccounts stream per chunk;
+// at most patient.import.max-billing-calls chunks wait on billing-service, then the import waits for the oldest
+@Service
+public class PatientImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(PatientImportService.class);
+
+    private static final List<String> CSV_COLUMNS =
+            List.of("name", "email", "address", "dateOfBirth", "registeredDate");
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final PatientRepository patientRepository;
+    private final PatientEventOutbox patientEventOutbox;
+    private final BillingServiceGrpcClient billingServiceGrpcClient;
+    private final PatientCache patientCache;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final boolean outboxEnabled;
+    private final int chunkSize;
+    private final int maxBillingCalls;
+    private final boolean billingStreamEnabled;
+
+    public PatientImportService(PatientRepository patientRepository,
+                                PatientEventOutbox patientEventOutbox,
+                                BillingServiceGrpcClient billingServiceGrpcClient,
+                                PatientCache patientCache,
+                                EntityManager entityManager,
+                                TransactionTemplate transactionTemplate,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                @Value("${patient.outbox.enabled:true}") boolean outboxEnabled,
+                                @Value("${patient.import.chunk-size:1000}") int chunkSize,
+                                @Value("${patient.import.max-billing-calls:4}") int maxBillingCalls,
+                                @Value("${patient.import.billing-stream.enabled:false}")
+                                boolean billingStreamEnabled) {
+        this.patientRepository = patientRepository;
+        this.patientEventOutbox = patientEventOutbox;
+        this.billingServiceGrpcClient = billingServiceGrpcClient;
+        this.patientCache = patientCache;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.outboxEnabled = outboxEnabled;
+        this.chunkSize = chunkSize;
+        this.maxBillingCalls = Math.max(1, maxBillingCalls);
+        this.billingStreamEnabled = billingStreamEnabled;
+    }
+
+    // Expects a JSON array of PatientRequestDTO objects. Elements that are valid JSON but not a valid patient
+    // record are reported and skipped; broken JSON syntax cannot be resynchronised and ends the import there
+    public PatientImportResponseDTO importJson(InputStream body) throws IOException {
+        ImportRun run = new ImportRun();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidImportException("Expected a JSON array of patients");
+            }
+
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        run.skip("Unexpected end of JSON, import stopped");
+                        break;
+                    }
+                    if (token != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        run.skip("Expected a patient object");
+                        continue;
+                    }
+
+                    // read the whole element first, so a record that does not bind leaves the parser on the next one
+                    JsonNode record = objectMapper.readTree(parser);
+                    try {
+                        run.add(objectMapper.treeToValue(record, PatientRequestDTO.class));
+                    } catch (JsonProcessingException e) {
+                        run.skip("Invalid patient record: " + e.getOriginalMessage());
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                // the rest of the stream cannot be trusted, keep what was read so far and report where it broke
+                run.skip("Malformed JSON, import stopped: " + e.getOriginalMessage());
+            }
+        }
+
+        return run.finish();
+    }
+
+    // Expects a header row naming the columns name,email,address,dateOfBirth,registeredDate in any order
+    public PatientImportResponseDTO importCsv(InputStream body) throws IOException {
+        ImportRun run = new ImportRun();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new InvalidImportException("CSV upload is empty");
+            }
+
+            List<String> header = parseCsvLine(headerLine).stream().map(String::trim).toList();
+            if (!new HashSet<>(header).containsAll(CSV_COLUMNS)) {
+                throw new InvalidImportException("CSV header must contain " + String.join(",", CSV_COLUMNS));
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                List<String> values = parseCsvLine(line);
+                if (values.size() != header.size()) {
+                    run.skip("Expected " + header.size() + " columns but found " + values.size());
+                    continue;
+                }
+
+                PatientRequestDTO patientRequestDTO = new PatientRequestDTO();
+                patientRequestDTO.setName(values.get(header.indexOf("name")));
+                patientRequestDTO.setEmail(values.get(header.indexOf("email")));
+                patientRequestDTO.setAddress(values.get(header.indexOf("address")));
+                patientRequestDTO.setDateOfBirth(values.get(header.indexOf("dateOfBirth")));
+                patientRequestDTO.setRegisteredDate(values.get(header.indexOf("registeredDate")));
+                run.add(patientRequestDTO);
+            }
+        }
+
+        return run.finish();
+    }
+
+    // Splits one CSV record, honouring double-quoted fields and "" escapes. Quoted fields may not span lines
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private class ImportRun {
+
+        private final long startNanos = System.nanoTime();
+        // emails of the current chunk, to reject duplicates inside it. A duplicate of an email in an earlier
+        // chunk is caught by findExistingEmails, since that chunk is committed by then
+        private final Set<String> chunkEmails = new HashSet<>();
+        private final List<PatientImportErrorDTO> errors = new ArrayList<>();
+        private final List<PatientRequestDTO> chunk = new ArrayList<>();
+        private final List<Long> chunkRows = new ArrayList<>();
+        // oldest first; each call keeps its chunk's patients reachable until it completes
+        private final Deque<CompletableFuture<?>> billingCalls = new ArrayDeque<>();
+
+        private long received;
+        private long imported;
+        private long failed;
+
+        void add(PatientRequestDTO patientRequestDTO) {
+            received++;
+
+            Set<ConstraintViolation<PatientRequestDTO>> violations = validator.validate(
+                    patientRequestDTO, Default.class, CreatePatientValidationGroup.class);
+            if (!violations.isEmpty()) {
+                reject(received, patientRequestDTO.getEmail(), violations.stream()
+                        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+
+            if (!chunkEmails.add(patientRequestDTO.getEmail())) {
+                reject(received, patientRequestDTO.getEmail(), "Duplicate email in upload");
+                return;
+            }
+
+            chunk.add(patientRequestDTO);
+            chunkRows.add(received);
+            if (chunk.size() >= chunkSize) {
+                flushChunk();
+            }
+        }
+
+        // counts a record that could not even be read into a PatientRequestDTO
+        void skip(String message) {
+            received++;
+            reject(received, null, message);
+        }
+
+        void reject(long row, String email, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new PatientImportErrorDTO(row, email, message));
+            }
+        }
+
+        PatientImportResponseDTO finish() {
+            flushChunk();
+            // billing failures were already logged per chunk, only wait for the calls to settle
+            CompletableFuture.allOf(billingCalls.toArray(CompletableFuture[]::new))
+                    .exceptionally(t -> null)
+                    .join();
+            billingCalls.clear();
+
+            long durationMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            PatientImportResponseDTO response = new PatientImportResponseDTO();
+            response.setReceived(received);
+            response.setImported(imported);
+            response.setFailed(failed);
+            response.setDurationMillis(durationMillis);
+            response.setRowsPerSecond(durationMillis == 0 ? imported : imported * 1000.0 / durationMillis);
+            response.setErrors(errors);
+
+            log.info("Imported {} of {} patients in {} ms", imported, received, durationMillis);
+            return response;
+        }
+
+        private void flushChunk() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            List<Patient> patients = insertChunk();
+            imported += patients.size();
+            // overwrite any cached "email not in use" answers for the emails just taken
+            patients.forEach(patient -> patientCache.putEmailOwner(patient.getEmail(), patient.getId()));
+
+            if (!patients.isEmpty()) {
+                // keeps memory bounded by a few chunks and paces the upload to what billing-service can take
+                while (billingCalls.size() >= maxBillingCalls) {
+                    billingCalls.removeFirst().exceptionally(t -> null).join();
+                }
+                // the patients are committed at this point, so a billing failure is reported but not undone
+                CompletableFuture<?> billingCall = billingStreamEnabled
+                        ? billingServiceGrpcClient.streamBillingAccounts(patients.iterator())
+                        : billingServiceGrpcClient.createBillingAccountsAsync(patients);
+                billingCalls.addLast(billingCall.whenComplete((responses, t) -> {
+                    if (t != null) {
+                        log.error("Error creating billing accounts for {} imported patients: {}",
+                                patients.size(), t.getMessage());
+                    }
+                }));
+            }
+
+            chunk.clear();
+            chunkRows.clear();
+            chunkEmails.clear();
+        }
+
+        // Writes the valid rows of the chunk and returns the patients committed. When the insert hits a unique
+        // constraint, most likely a concurrent create took an email after the lookup, the emails are looked up
+        // again: only rows that now conflict are rejected and the rest are retried once
+        private List<Patient> insertChunk() {
+            List<Integer> positions = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                positions.add(i);
+            }
+
+            List<Patient> patients = toPatients(positions);
+            if (save(patients)) {
+                return patients;
+            }
+
+            // new entities, the rolled back ones already carry generated ids
+            patients = toPatients(positions);
+            if (save(patients)) {
+                return patients;
+            }
+
+            for (int position : positions) {
+                reject(chunkRows.get(position), chunk.get(position).getEmail(),
+                        "Chunk rolled back: conflicting write");
+            }
+            return List.of();
+        }
+
+        // Maps the chunk rows at positions to new entities. Rows whose email is taken or whose dates do not parse
+        // are rejected and removed from positions
+        private List<Patient> toPatients(List<Integer> positions) {
+            Set<String> existingEmails = new HashSet<>(patientRepository.findExistingEmails(
+                    positions.stream().map(position -> chunk.get(position).getEmail()).toList()));
+
+            List<Patient> patients = new ArrayList<>(positions.size());
+            Iterator<Integer> iterator = positions.iterator();
+            while (iterator.hasNext()) {
+                int position = iterator.next();
+                PatientRequestDTO patientRequestDTO = chunk.get(position);
+                long row = chunkRows.get(position);
+
+                if (existingEmails.contains(patientRequestDTO.getEmail())) {
+                    reject(row, patientRequestDTO.getEmail(), "Email Already in use");
+                    iterator.remove();
+                    continue;
+                }
+
+                try {
+                    patients.add(PatientMapper.toModel(patientRequestDTO));
+                } catch (DateTimeParseException e) {
+                    reject(row, patientRequestDTO.getEmail(), "Invalid date: " + e.getParsedString());
+                    iterator.remove();
+                }
+            }
+            return patients;
+        }
+
+        // false when the transaction was rolled back on a constraint violation
+        private boolean save(List<Patient> patients) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    patientRepository.saveAll(patients);
+                    if (outboxEnabled) {
+                        patients.forEach(patient ->
+                                patientEventOutbox.enqueue(PatientMapper.toPatientCreatedEvent(patient)));
+                    }
+                    // push the batched inserts now and drop the entities so the persistence context stays small
+                    entityManager.flush();
+                    entityManager.clear();
+                });
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Import chunk rolled back: {}", e.getMostSpecificCause().getMessage());
+                return false;
+            }
+        }
+    }
+}
@@ -1,56 +1,221 @@
 package com.pm.patientservice.service;
 
+import billing.BillingResponse;
+import com.pm.patientservice.cache.PatientCache;
+import com.pm.patientservice.dto.PatientPageResponseDTO;
 import com.pm.patientservice.dto.PatientRequestDTO;
 import com.pm.patientservice.dto.PatientResponseDTO;
 import com.pm.patientservice.exception.EmailAlreadyExistsException;
+import com.pm.patientservice.exception.InvalidSearchException;
 import com.pm.patientservice.exception.PatientNotFountException;
 import com.pm.patientservice.grpc.BillingServiceGrpcClient;
 import com.pm.patientservice.kafka.KafkaProducer;
+import com.pm.patientservice.kafka.PatientEventOutbox;
 import com.pm.patientservice.mapper.PatientMapper;
 import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.pagination.PatientCursor;
+import com.pm.patientservice.pagination.PatientSort;
 import com.pm.patientservice.repository.PatientRepository;
+import com.pm.patientservice.search.PatientSearchCriteria;
+import com.pm.patientservice.search.PatientSpecifications;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+// Every public method is timed as patient.service{class,method,exception} (TimedAspect)
 @Service
+@Timed("patient.service")
 public class PatientService {
 
     private final PatientRepository patientRepository;
     private final BillingServiceGrpcClient billingServiceGrpcClient;
     private final KafkaProducer kafkaProducer;
+    private final PatientEventOutbox patientEventOutbox;
+    private final PatientCache patientCache;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean outboxEnabled;
+    private final boolean asyncCreate;
+    private final long asyncCreateDeadlineMillis;
 
     public PatientService(PatientRepository patientRepository,
                           BillingServiceGrpcClient billingServiceGrpcClient,
-                          KafkaProducer kafkaProducer) {
+                          KafkaProducer kafkaProducer,
+                          PatientEventOutbox patientEventOutbox,
+                          PatientCache patientCache,
+                          EntityManager entityManager,
+                          TransactionTemplate transactionTemplate,
+                          @Value("${patient.outbox.enabled:true}") boolean outboxEnabled,
+                          @Value("${patient.create.async.enabled:false}") boolean asyncCreate,
+                          @Value("${patient.create.async.deadline-ms:2000}") long asyncCreateDeadlineMillis) {
         this.patientRepository = patientRepository;
         this.billingServiceGrpcClient = billingServiceGrpcClient;
         this.kafkaProducer = kafkaProducer;
+        this.patientEventOutbox = patientEventOutbox;
+        this.patientCache = patientCache;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxEnabled = outboxEnabled;
+        this.asyncCreate = asyncCreate;
+        this.asyncCreateDeadlineMillis = asyncCreateDeadlineMillis;
     }
 
-    public List<PatientResponseDTO> getPatients() {
-        List<Patient> patients = patientRepository.findAll();
+    @Transactional(readOnly = true)
+    public PatientPageResponseDTO getPatients(String cursorToken, int size, PatientSort sort) {
+        PatientCursor cursor = cursorToken == null || cursorToken.isBlank()
+                ? null
+                : PatientCursor.decode(cursorToken);
+        // a cursor always continues in the ordering it was issued for
+        PatientSort effectiveSort = cursor != null ? cursor.sort() : sort;
 
-        return patients.stream().map(PatientMapper::toPatientResponseDTO).toList();
+        // fetch one extra row to find out whether another page exists without a COUNT query
+        Limit limit = Limit.of(size + 1);
+        List<Patient> patients = switch (effectiveSort) {
+            case REGISTERED_DATE -> cursor == null
+                    ? patientRepository.findFirstPageByRegisteredDate(limit)
+                    : patientRepository.findPageByRegisteredDateAfter(cursor.registeredDate(), cursor.id(), limit);
+            case ID -> cursor == null
+                    ? patientRepository.findFirstPageById(limit)
+                    : patientRepository.findPageByIdAfter(cursor.id(), limit);
+        };
+
+        String nextCursor = null;
+        if (patients.size() > size) {
+            patients = patients.subList(0, size);
+            nextCursor = PatientCursor.after(effectiveSort, patients.get(size - 1)).encode();
+        }
+
+        return new PatientPageResponseDTO(
+                patients.stream().map(PatientMapper::toPatientResponseDTO).toList(),
+                nextCursor);
+    }
+
+    // Same keyset pagination and response as getPatients, ordered by (registeredDate, id),
+    // restricted to the patients matching every given filter
+    @Transactional(readOnly = true)
+    public PatientPageResponseDTO searchPatients(PatientSearchCriteria criteria, String cursorToken, int size) {
+        if (criteria.isEmpty()) {
+            throw new InvalidSearchException("At least one search parameter is required");
+        }
+        if (criteria.dateOfBirthFrom() != null && criteria.dateOfBirthTo() != null
+                && criteria.dateOfBirthFrom().isAfter(criteria.dateOfBirthTo())) {
+            throw new InvalidSearchException("dateOfBirthFrom must not be after dateOfBirthTo");
+        }
+
+        Specification<Patient> specification = PatientSpecifications.matching(criteria);
+        if (cursorToken != null && !cursorToken.isBlank()) {
+            PatientCursor cursor = PatientCursor.decode(cursorToken);
+            if (cursor.sort() != PatientSort.REGISTERED_DATE) {
+                throw new InvalidSearchException("Cursor was not issued by a search");
+            }
+            specification = specification.and(PatientSpecifications.after(cursor));
+        }
+
+        List<Patient> patients = patientRepository.findBy(specification, query -> query
+                .sortBy(Sort.by("registeredDate", "id"))
+                .limit(size + 1)
+                .all());
+
+        String nextCursor = null;
+        if (patients.size() > size) {
+            patients = patients.subList(0, size);
+            nextCursor = PatientCursor.after(PatientSort.REGISTERED_DATE, patients.get(size - 1)).encode();
+        }
+
+        return new PatientPageResponseDTO(
+                patients.stream().map(PatientMapper::toPatientResponseDTO).toList(),
+                nextCursor);
+    }
+
+    // Streams every patient to the consumer one at a time. Each entity is detached once mapped so the
+    // persistence context does not grow with the table and memory stays flat
+    @Transactional(readOnly = true)
+    public void streamPatients(Consumer<PatientResponseDTO> consumer) {
+        try (Stream<Patient> patients = patientRepository.streamAllByRegisteredDate()) {
+            patients.forEach(patient -> {
+                consumer.accept(PatientMapper.toPatientResponseDTO(patient));
+                entityManager.detach(patient);
+            });
+        }
+    }
+
+    public PatientResponseDTO getPatient(UUID id) {
+        PatientResponseDTO patient = patientCache.getPatient(id, key -> patientRepository.findById(key)
+                .map(PatientMapper::toPatientResponseDTO)
+                .orElse(null));
+
+        if (patient == null) {
+            throw new PatientNotFountException("Patient not found with ID: " + id);
+        }
+        return patient;
     }
 
     public PatientResponseDTO createPatient(PatientRequestDTO patientRequestDTO) {
-        if (patientRepository.existsByEmail(patientRequestDTO.getEmail())) {
+        if (emailOwner(patientRequestDTO.getEmail()).isPresent()) {
             throw new EmailAlreadyExistsException(
                     "A patient with this email " + "already exists"
                             + patientRequestDTO.getEmail());
         }
 
-        Patient newPatient = patientRepository.save(
-                PatientMapper.toModel(patientRequestDTO));
+        // with the outbox, the event row commits atomically with the patient and the relay publishes it later
+        Patient newPatient = transactionTemplate.execute(status -> {
+            Patient saved = patientRepository.save(PatientMapper.toModel(patientRequestDTO));
+            if (outboxEnabled) {
+                patientEventOutbox.enqueue(PatientMapper.toPatientCreatedEvent(saved));
+            }
+            return saved;
+        });
+        PatientResponseDTO patientResponseDTO = PatientMapper.toPatientResponseDTO(newPatient);
+        patientCache.putPatient(patientResponseDTO);
 
-        billingServiceGrpcClient.createBillingAccount(newPatient.getId().toString(),
-                newPatient.getName(), newPatient.getEmail());
+        if (asyncCreate) {
+            createBillingAccountAndSendEvent(newPatient);
+        } else {
+            billingServiceGrpcClient.createBillingAccount(newPatient.getId().toString(),
+                    newPatient.getName(), newPatient.getEmail());
 
-        kafkaProducer.sendEvent(newPatient);
+            if (!outboxEnabled) {
+                kafkaProducer.sendEvent(PatientMapper.toPatientCreatedEvent(newPatient));
+            }
+        }
 
-        return PatientMapper.toPatientResponseDTO(newPatient);
+        return patientResponseDTO;
+    }
+
+    // Runs the billing call and the event publish side by side once the patient row is saved, so the
+    // request waits for the slower of the two instead of their sum. A billing failure still fails the
+    // request; the event publish is only waited on up to the deadline and never fails it
+    private void createBillingAccountAndSendEvent(Patient newPatient) {
+        CompletableFuture<BillingResponse> billing = billingServiceGrpcClient.createBillingAccountAsync(
+                newPatient.getId().toString(), newPatient.getName(), newPatient.getEmail());
+        CompletableFuture<Void> event = outboxEnabled
+                ? CompletableFuture.completedFuture(null)
+                : kafkaProducer.sendEventAsync(PatientMapper.toPatientCreatedEvent(newPatient))
+                        .completeOnTimeout(null, asyncCreateDeadlineMillis, TimeUnit.MILLISECONDS);
+
+        try {
+            CompletableFuture.allOf(billing, event).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 
     public PatientResponseDTO updatePatient(UUID id,
@@ -59,23 +224,61 @@ public class PatientService {
         Patient patient = patientRepository.findById(id).orElseThrow(
                 () -> new PatientNotFountException("Patient not found with ID: " + id));
 
-        if (patientRepository.existsByEmailAndIdNot(patientRequestDTO.getEmail(),
-                id)) {
+        Optional<UUID> emailOwner = emailOwner(patientRequestDTO.getEmail());
+        if (emailOwner.isPresent() && !emailOwner.get().equals(id)) {
             throw new EmailAlreadyExistsException(
                     "A patient with this email " + "already exists"
                             + patientRequestDTO.getEmail());
         }
 
+        String previousEmail = patient.getEmail();
+        List<String> changedFields = PatientMapper.changedFields(patient, patientRequestDTO);
         patient.setName(patientRequestDTO.getName());
         patient.setAddress(patientRequestDTO.getAddress());
         patient.setEmail(patientRequestDTO.getEmail());
         patient.setDateOfBirth(LocalDate.parse(patientRequestDTO.getDateOfBirth()));
 
-        Patient updatedPatient = patientRepository.save(patient);
-        return PatientMapper.toPatientResponseDTO(updatedPatient);
+        // flushed inside the transaction so the event carries the version this update produced.
+        // An update that changes nothing bumps no version and publishes nothing
+        Patient updatedPatient = transactionTemplate.execute(status -> {
+            Patient saved = patientRepository.saveAndFlush(patient);
+            if (outboxEnabled && !changedFields.isEmpty()) {
+                patientEventOutbox.enqueue(PatientMapper.toPatientUpdatedEvent(saved, changedFields));
+            }
+            return saved;
+        });
+        if (!outboxEnabled && !changedFields.isEmpty()) {
+            kafkaProducer.sendEvent(PatientMapper.toPatientUpdatedEvent(updatedPatient, changedFields));
+        }
+
+        PatientResponseDTO patientResponseDTO = PatientMapper.toPatientResponseDTO(updatedPatient);
+        patientCache.evictPatient(id, previousEmail);
+        patientCache.putPatient(patientResponseDTO);
+        return patientResponseDTO;
     }
 
     public void deletePatient(UUID id) {
-        patientRepository.deleteById(id);
+        // read first so the cached email entry can be dropped along with the patient
+        Patient deletedPatient = transactionTemplate.execute(status -> {
+            Optional<Patient> patient = patientRepository.findById(id);
+            patient.ifPresent(existing -> {
+                patientRepository.delete(existing);
+                if (outboxEnabled) {
+                    patientEventOutbox.enqueue(PatientMapper.toPatientDeletedEvent(existing));
+                }
+            });
+            return patient.orElse(null);
+        });
+
+        if (deletedPatient != null) {
+            patientCache.evictPatient(id, deletedPatient.getEmail());
+            if (!outboxEnabled) {
+                kafkaProducer.sendEvent(PatientMapper.toPatientDeletedEvent(deletedPatient));
+            }
+        }
+    }
+
+    private Optional<UUID> emailOwner(String email) {
+        return patientCache.getEmailOwner(email, patientRepository::findIdByEmail);
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.pm.patientservice.tracing;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+
+@Configuration
+public class TracingConfig {
+
+    // Spring Boot applies it to the @Async executor, so the billing calls of an import stay in the request's trace
+    @Bean
+    public TaskDecorator contextPropagatingTaskDecorator() {
+        return new ContextPropagatingTaskDecorator();
+    }
+}
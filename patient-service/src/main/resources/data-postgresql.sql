@@ -0,0 +1,11 @@
+-- noinspection SqlNoDataSourceInspectionForFile
+
+-- Postgres-only indexes for /patients/search, run after data.sql when spring.sql.init.platform=postgresql
+
+-- Case-insensitive name prefix: lower(name) LIKE 'abc%' can range-scan a text_pattern_ops btree
+CREATE INDEX IF NOT EXISTS idx_patient_name_lower_prefix ON patient (lower(name) text_pattern_ops);
+
+-- Case-insensitive address substring: lower(address) LIKE '%abc%' cannot use a btree at all,
+-- a trigram GIN index narrows it to the rows sharing the pattern's trigrams
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_patient_address_lower_trgm ON patient USING gin (lower(address) gin_trgm_ops);
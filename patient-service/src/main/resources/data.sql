@@ -11,9 +11,35 @@ CREATE TABLE IF NOT EXISTS patient
     email           VARCHAR(255) UNIQUE NOT NULL,
     address         VARCHAR(255)        NOT NULL,
     date_of_birth   DATE                NOT NULL,
-    registered_date DATE                NOT NULL
+    registered_date DATE                NOT NULL,
+    version         BIGINT DEFAULT 0    NOT NULL
     );
 
+-- Optimistic-locking version, also used for ETags. Added separately for databases created before it existed
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+-- Backs the keyset-paginated and streamed listings, which order by (registered_date, id)
+CREATE INDEX IF NOT EXISTS idx_patient_registered_date_id ON patient (registered_date, id);
+
+-- Backs the date-of-birth range filter of /patients/search. The text search indexes need Postgres
+-- extensions and are created in data-postgresql.sql
+CREATE INDEX IF NOT EXISTS idx_patient_date_of_birth ON patient (date_of_birth);
+
+-- Events waiting to be relayed to Kafka, written in the same transaction as the patient change
+CREATE TABLE IF NOT EXISTS patient_outbox
+(
+    id           UUID PRIMARY KEY,
+    aggregate_id VARCHAR(255) NOT NULL,
+    topic        VARCHAR(255) NOT NULL,
+    payload      BYTEA        NOT NULL,
+    created_at   TIMESTAMP    NOT NULL,
+    trace_parent VARCHAR(255)
+    );
+
+ALTER TABLE patient_outbox ADD COLUMN IF NOT EXISTS trace_parent VARCHAR(255);
+
+CREATE INDEX IF NOT EXISTS idx_patient_outbox_created_at ON patient_outbox (created_at);
+
 -- Insert well-known UUIDs for specific patients
 INSERT INTO patient (id, name, email, address, date_of_birth, registered_date)
 SELECT '123e4567-e89b-12d3-a456-426614174000',
@@ -0,0 +1,82 @@
+package com.pm.patientservice.pagination;
+
+import com.pm.patientservice.exception.InvalidCursorException;
+import com.pm.patientservice.model.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PatientCursorTest {
+
+    private static final UUID ID = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+
+    @Test
+    void registeredDateCursorSurvivesTheRoundTrip() {
+        PatientCursor cursor = new PatientCursor(PatientSort.REGISTERED_DATE, LocalDate.of(2024, 3, 1), ID);
+
+        assertEquals(cursor, PatientCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void idCursorWithoutDateSurvivesTheRoundTrip() {
+        PatientCursor cursor = new PatientCursor(PatientSort.ID, null, ID);
+
+        assertEquals(cursor, PatientCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void cursorAfterTakesTheSortKeyOfThePatient() {
+        Patient patient = new Patient();
+        patient.setId(ID);
+        patient.setRegisteredDate(LocalDate.of(2024, 3, 1));
+
+        PatientCursor cursor = PatientCursor.after(PatientSort.REGISTERED_DATE, patient);
+
+        assertEquals(new PatientCursor(PatientSort.REGISTERED_DATE, LocalDate.of(2024, 3, 1), ID), cursor);
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        String token = new PatientCursor(PatientSort.REGISTERED_DATE, LocalDate.of(2024, 3, 1), ID).encode();
+
+        assertFalse(token.contains("+") || token.contains("/") || token.contains("="));
+    }
+
+    @Test
+    void rejectsTokenThatIsNotBase64() {
+        assertThrows(InvalidCursorException.class, () -> PatientCursor.decode("not a cursor!"));
+    }
+
+    @Test
+    void rejectsWrongNumberOfParts() {
+        assertThrows(InvalidCursorException.class, () -> PatientCursor.decode(token("ID|" + ID)));
+    }
+
+    @Test
+    void rejectsUnknownSort() {
+        assertThrows(InvalidCursorException.class, () -> PatientCursor.decode(token("NAME||" + ID)));
+    }
+
+    @Test
+    void rejectsRegisteredDateCursorWithoutDate() {
+        assertThrows(InvalidCursorException.class, () -> PatientCursor.decode(token("REGISTERED_DATE||" + ID)));
+    }
+
+    @Test
+    void rejectsInvalidDateAndId() {
+        assertThrows(InvalidCursorException.class,
+                () -> PatientCursor.decode(token("REGISTERED_DATE|2024-13-01|" + ID)));
+        assertThrows(InvalidCursorException.class, () -> PatientCursor.decode(token("ID||not-a-uuid")));
+    }
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,178 @@
+package com.pm.patientservice.service;
+
+import billing.BillingResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.patientservice.cache.PatientCache;
+import com.pm.patientservice.dto.PatientImportErrorDTO;
+import com.pm.patientservice.dto.PatientImportResponseDTO;
+import com.pm.patientservice.grpc.BillingServiceGrpcClient;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.PatientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatientImportServiceTest {
+
+    // none of the uploads below get as far as a database write, so the persistence collaborators stay null
+    private final PatientImportService importService = new PatientImportService(null, null, null, null, null, null,
+            Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), true, 1000, 4, false);
+
+    @Test
+    void parseCsvLineSplitsOnCommas() {
+        assertEquals(List.of("John Doe", "john@example.com", "", "1985-06-15"),
+                PatientImportService.parseCsvLine("John Doe,john@example.com,,1985-06-15"));
+    }
+
+    @Test
+    void parseCsvLineKeepsCommasAndEscapedQuotesInsideQuotes() {
+        assertEquals(List.of("Doe, John", "12 \"Main\" St", "x"),
+                PatientImportService.parseCsvLine("\"Doe, John\",\"12 \"\"Main\"\" St\",x"));
+    }
+
+    @Test
+    void parseCsvLineKeepsTrailingEmptyField() {
+        assertEquals(List.of("a", "b", ""), PatientImportService.parseCsvLine("a,b,"));
+        assertEquals(List.of(""), PatientImportService.parseCsvLine(""));
+    }
+
+    @Test
+    void recordsThatDoNotBindAreSkippedAndTheRestIsRead() throws IOException {
+        PatientImportResponseDTO response = importJson("""
+                [
+                  {"name": {"first": "John"}, "email": "john@example.com"},
+                  42,
+                  {"name": "Jane", "email": "not-an-email"}
+                ]""");
+
+        assertEquals(3, response.getReceived());
+        assertEquals(0, response.getImported());
+        assertEquals(3, response.getFailed());
+        List<PatientImportErrorDTO> errors = response.getErrors();
+        assertTrue(errors.get(0).getMessage().startsWith("Invalid patient record"), errors.get(0).getMessage());
+        assertEquals("Expected a patient object", errors.get(1).getMessage());
+        assertEquals(3, errors.get(2).getRow());
+        assertTrue(errors.get(2).getMessage().contains("email"), errors.get(2).getMessage());
+    }
+
+    @Test
+    void brokenSyntaxStopsTheImportWithAnError() throws IOException {
+        PatientImportResponseDTO response = importJson("[{\"name\": \"Jane\"}, {\"name\": ");
+
+        assertEquals(2, response.getReceived());
+        assertEquals(2, response.getFailed());
+        assertTrue(response.getErrors().get(1).getMessage().startsWith("Malformed JSON, import stopped"));
+    }
+
+    @Test
+    void conflictingWriteRejectsOnlyTheRowsThatNowConflict() throws IOException {
+        List<String> saved = new ArrayList<>();
+        // a concurrent create takes bob's email between the lookup and the insert
+        PatientImportService service = withDatabase(saved, 1, List.of(), List.of("bob@example.com"));
+
+        PatientImportResponseDTO response = service.importCsv(csv("ann", "bob", "cat"));
+
+        assertEquals(3, response.getReceived());
+        assertEquals(2, response.getImported());
+        assertEquals(1, response.getFailed());
+        assertEquals(2, response.getErrors().get(0).getRow());
+        assertEquals("Email Already in use", response.getErrors().get(0).getMessage());
+        assertEquals(List.of("ann@example.com", "cat@example.com"), saved);
+    }
+
+    @Test
+    void secondConflictingWriteRejectsTheRestOfTheChunk() throws IOException {
+        List<String> saved = new ArrayList<>();
+        PatientImportService service = withDatabase(saved, 2, List.of(), List.of());
+
+        PatientImportResponseDTO response = service.importCsv(csv("ann", "bob"));
+
+        assertEquals(0, response.getImported());
+        assertEquals(2, response.getFailed());
+        assertEquals("Chunk rolled back: conflicting write", response.getErrors().get(1).getMessage());
+        assertTrue(saved.isEmpty());
+    }
+
+    // A service whose repository answers findExistingEmails with takenEmails in turn and whose first failedSaves
+    // transactions fail on a unique constraint; committed emails are added to saved
+    @SafeVarargs
+    private static PatientImportService withDatabase(List<String> saved, int failedSaves,
+                                                     List<String>... takenEmails) {
+        Deque<List<String>> lookups = new ArrayDeque<>(List.of(takenEmails));
+        List<String> pending = new ArrayList<>();
+        PatientRepository repository = (PatientRepository) Proxy.newProxyInstance(
+                PatientRepository.class.getClassLoader(), new Class<?>[]{PatientRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findExistingEmails" -> lookups.isEmpty() ? List.of() : lookups.removeFirst();
+                    case "saveAll" -> {
+                        for (Object patient : (Iterable<?>) args[0]) {
+                            ((Patient) patient).setId(UUID.randomUUID());
+                            pending.add(((Patient) patient).getEmail());
+                        }
+                        yield args[0];
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        EntityManager entityManager = (EntityManager) Proxy.newProxyInstance(
+                EntityManager.class.getClassLoader(), new Class<?>[]{EntityManager.class},
+                (proxy, method, args) -> null);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate() {
+            private int saves;
+
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                pending.clear();
+                T result = action.doInTransaction(null);
+                if (saves++ < failedSaves) {
+                    throw new DataIntegrityViolationException("duplicate key value violates unique constraint");
+                }
+                saved.addAll(pending);
+                return result;
+            }
+        };
+        BillingServiceGrpcClient billingClient = new BillingServiceGrpcClient(null, 0, 0, 1) {
+            @Override
+            public CompletableFuture<List<BillingResponse>> createBillingAccountsAsync(List<Patient> patients) {
+                return CompletableFuture.completedFuture(List.of());
+            }
+        };
+        PatientCache patientCache = new PatientCache(100, Duration.ofMinutes(1), Duration.ofSeconds(1),
+                new SimpleMeterRegistry());
+
+        return new PatientImportService(repository, null, billingClient, patientCache, entityManager,
+                transactionTemplate, Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(),
+                false, 1000, 4, false);
+    }
+
+    private static ByteArrayInputStream csv(String... names) {
+        StringBuilder csv = new StringBuilder("name,email,address,dateOfBirth,registeredDate\n");
+        for (String name : names) {
+            csv.append(name).append(',').append(name).append("@example.com,1 Main St,1985-06-15,2024-01-10\n");
+        }
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private PatientImportResponseDTO importJson(String json) throws IOException {
+        return importService.importJson(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}